@@ -0,0 +1,112 @@
+package engine;
+
+import config.ExecutionMode;
+import config.GameConfig;
+import entities.Entity;
+import entities.EntityType;
+import grid.CellState;
+import grid.Grid;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Entities wandering a large field without waiting between steps, so the run is bound by stepping and
+// scheduling: the pooled scheduler's shared heap against one worker per region. Compare the threads
+// params for each mode to see how throughput scales with cores.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RegionScalingBenchmark {
+    private static final int STEPS = 100;
+
+    @Param({"POOLED", "REGION"})
+    ExecutionMode mode;
+
+    @Param({"1", "2", "4", "8", "16"})
+    int threads;
+
+    @Param({"1000", "2000"})
+    int fieldSize;
+
+    @Param({"20000"})
+    int entities;
+
+    private Grid grid;
+    private EntityExecutor executor;
+    private CountDownLatch finished;
+    private Walker[] walkers;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        GameConfig config = GameConfig.getInstance().copy();
+        config.setExecutionMode(mode);
+        config.setSchedulerThreads(threads);
+        config.setRegionsPerSide(0);
+        config.setTimeScale(1.0);
+        grid = new Grid(fieldSize, config, 1);
+        executor = EntityExecutor.create(config, grid.getRegions());
+        finished = new CountDownLatch(entities);
+        walkers = new Walker[entities];
+        for (int i = 0; i < entities; i++) {
+            walkers[i] = new Walker(grid, finished, i);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public void wander() throws InterruptedException {
+        for (Walker walker : walkers) {
+            executor.submit(walker);
+        }
+        finished.await();
+    }
+
+    // Takes a random step and looks at the cell it lands on, like a rabbit searching for carrots
+    static class Walker extends Entity {
+        private final CountDownLatch finished;
+        private int stepsLeft = STEPS;
+
+        Walker(Grid grid, CountDownLatch finished, int i) {
+            super(i * 7919 % grid.getSize(), i * 104729 % grid.getSize(), grid, 1);
+            this.finished = finished;
+            grid.addEntity(this);
+        }
+
+        @Override
+        public EntityType getType() {
+            return EntityType.RABBIT;
+        }
+
+        @Override
+        public long step() {
+            if (stepsLeft-- == 0) {
+                finished.countDown();
+                return DONE;
+            }
+            moveRandomly();
+            if (grid.getState(getX(), getY()) == CellState.READY) {
+                grid.damage(getX(), getY());
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package engine;
+
+import config.ExecutionMode;
+import config.GameConfig;
+import entities.Entity;
+import entities.EntityType;
+import grid.Grid;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Many entities each sleeping through a chain of short delays, as rabbits eating and dogs stepping do:
+// a thread sleeping per entity, the pooled scheduler's heap and the timing wheel. Each entity waits
+// STEPS times for 5-20 ms, so the fastest possible run takes about 300 ms; the rest is wake-up overhead.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class WakeUpBenchmark {
+    private static final int STEPS = 20;
+
+    @Param({"THREAD", "POOLED", "WHEEL"})
+    ExecutionMode mode;
+
+    @Param({"1000", "10000"})
+    int entities;
+
+    @Param({"5"})
+    int timerTickMs;
+
+    private Grid grid;
+    private EntityExecutor executor;
+    private CountDownLatch finished;
+    private Sleeper[] sleepers;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        GameConfig config = GameConfig.getInstance().copy();
+        config.setExecutionMode(mode);
+        config.setTimerTickMs(timerTickMs);
+        config.setTimeScale(1.0);
+        grid = new Grid(16, config, 1);
+        executor = EntityExecutor.create(config);
+        finished = new CountDownLatch(entities);
+        sleepers = new Sleeper[entities];
+        for (int i = 0; i < entities; i++) {
+            sleepers[i] = new Sleeper(grid, finished);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public void wakeUps() throws InterruptedException {
+        for (Sleeper sleeper : sleepers) {
+            executor.submit(sleeper);
+        }
+        finished.await();
+    }
+
+    // Does nothing but wait a few ms between steps
+    static class Sleeper extends Entity {
+        private final CountDownLatch finished;
+        private int stepsLeft = STEPS;
+
+        Sleeper(Grid grid, CountDownLatch finished) {
+            super(0, 0, grid, 1);
+            this.finished = finished;
+        }
+
+        @Override
+        public EntityType getType() {
+            return EntityType.RABBIT;
+        }
+
+        @Override
+        public long step() {
+            if (stepsLeft-- == 0) {
+                finished.countDown();
+                return DONE;
+            }
+            return 5 + random.nextInt(16);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package grid;
+
+import config.CellStorageType;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Cell transitions from several threads at once on a handful of cells. Change the thread count with -t.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class CellContentionBenchmark {
+    @Param({"OBJECT", "PACKED"})
+    CellStorageType storage;
+
+    // Side of the square of cells all threads work on; 1 puts every thread on the same cell
+    @Param({"1", "8"})
+    int hotSide;
+
+    private CellStorage cells;
+
+    @Setup
+    public void setUp() {
+        cells = storage == CellStorageType.OBJECT ? new ObjectCellStorage(hotSide) : new PackedCellStorage(hotSide);
+    }
+
+    @Benchmark
+    public boolean transition() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int x = random.nextInt(hotSide);
+        int y = random.nextInt(hotSide);
+        // Mostly growth, as on a real field, with the occasional plant, rabbit bite and repair
+        switch (random.nextInt(8)) {
+            case 0:
+                return cells.plant(x, y);
+            case 1:
+                return cells.damage(x, y);
+            case 2:
+                return cells.repair(x, y);
+            default:
+                return cells.grow(x, y);
+        }
+    }
+
+    @Benchmark
+    public int read() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return cells.read(random.nextInt(hotSide), random.nextInt(hotSide));
+    }
+}
@@ -0,0 +1,81 @@
+package grid;
+
+import config.CellStorageType;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Cost of one growth tick. Cells are ready after MAX_GROWTH ticks, so every invocation replants the
+// same cells and runs a full growth cycle; the score is per tick and includes the replanting.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GrowthBenchmark {
+    @Param({"100", "500", "2000"})
+    int fieldSize;
+
+    @Param({"OBJECT", "PACKED"})
+    CellStorageType storage;
+
+    // Share of the field that is growing, as on a busy farm
+    @Param({"0.3"})
+    double plantedShare;
+
+    private Grid grid;
+    private int[] plantedX;
+    private int[] plantedY;
+
+    @Setup
+    public void setUp() {
+        grid = new Grid(fieldSize, storage);
+        Random random = new Random(42);
+        int count = (int) (fieldSize * (double) fieldSize * plantedShare);
+        plantedX = new int[count];
+        plantedY = new int[count];
+        for (int i = 0; i < count; i++) {
+            plantedX[i] = random.nextInt(fieldSize);
+            plantedY[i] = random.nextInt(fieldSize);
+        }
+    }
+
+    private void replant() {
+        for (int i = 0; i < plantedX.length; i++) {
+            grid.plant(plantedX[i], plantedY[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CellStorage.MAX_GROWTH)
+    public int serialTick() {
+        replant();
+        for (int tick = 0; tick < CellStorage.MAX_GROWTH; tick++) {
+            grid.updateGrowth();
+        }
+        return grid.getGrowingCount();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CellStorage.MAX_GROWTH)
+    public int parallelTick() {
+        replant();
+        for (int tick = 0; tick < CellStorage.MAX_GROWTH; tick++) {
+            grid.updateGrowth(ForkJoinPool.commonPool());
+        }
+        return grid.getGrowingCount();
+    }
+}
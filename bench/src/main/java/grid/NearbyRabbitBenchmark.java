@@ -0,0 +1,62 @@
+package grid;
+
+import config.CellStorageType;
+import entities.Rabbit;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Rabbit lookups as farmers (range 3) and dogs (detection range) make them, against growing populations
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NearbyRabbitBenchmark {
+    private static final int QUERIES = 1024;
+
+    @Param({"500"})
+    int fieldSize;
+
+    @Param({"10", "1000", "10000", "100000"})
+    int rabbits;
+
+    @Param({"3", "10"})
+    int range;
+
+    private Grid grid;
+    private final int[] queryX = new int[QUERIES];
+    private final int[] queryY = new int[QUERIES];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        grid = new Grid(fieldSize, CellStorageType.PACKED);
+        Random random = new Random(42);
+        // Rabbits are only placed, never started, so the population stays fixed
+        for (int i = 0; i < rabbits; i++) {
+            grid.addEntity(new Rabbit(random.nextInt(fieldSize), random.nextInt(fieldSize), grid));
+        }
+        for (int i = 0; i < QUERIES; i++) {
+            queryX[i] = random.nextInt(fieldSize);
+            queryY[i] = random.nextInt(fieldSize);
+        }
+    }
+
+    @Benchmark
+    public Rabbit findNearbyRabbit() {
+        int i = next++ & (QUERIES - 1);
+        return grid.findNearbyRabbit(queryX[i], queryY[i], range);
+    }
+}
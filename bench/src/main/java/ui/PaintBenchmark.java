@@ -0,0 +1,94 @@
+package ui;
+
+import config.CellStorageType;
+import entities.Rabbit;
+import grid.Grid;
+import grid.SnapshotPublisher;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Headless rendering of the game panel into a BufferedImage. Small fields render in detail mode,
+// large ones in raster mode. The panel is not in a viewport, so the whole field is in view.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PaintBenchmark {
+    @Param({"20", "100", "1000"})
+    int fieldSize;
+
+    // Cells changed between two frames
+    @Param({"10", "1000"})
+    int changesPerFrame;
+
+    private Grid grid;
+    private SnapshotPublisher snapshots;
+    private GamePanel panel;
+    private BufferedImage image;
+    private Graphics2D graphics;
+    private final Random random = new Random(42);
+
+    @Setup
+    public void setUp() {
+        grid = new Grid(fieldSize, CellStorageType.PACKED);
+        for (int i = 0; i < fieldSize * fieldSize / 3; i++) {
+            grid.plant(random.nextInt(fieldSize), random.nextInt(fieldSize));
+        }
+        for (int i = 0; i < Math.max(5, fieldSize / 4); i++) {
+            grid.addEntity(new Rabbit(random.nextInt(fieldSize), random.nextInt(fieldSize), grid));
+        }
+        snapshots = new SnapshotPublisher(grid);
+        snapshots.publish();
+        panel = new GamePanel(snapshots);
+        panel.setSize(panel.getPreferredSize());
+        image = new BufferedImage(panel.getWidth(), panel.getHeight(), BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+        panel.refresh();
+    }
+
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    // Blit of the cached cells plus entities for the whole panel, with nothing changed
+    @Benchmark
+    public BufferedImage paintUnchanged() {
+        panel.paintComponent(graphics);
+        return image;
+    }
+
+    // One frame as the refresh timer produces it: new snapshot, redraw of the changed cells, paint
+    @Benchmark
+    public BufferedImage refreshAndPaint() {
+        for (int i = 0; i < changesPerFrame; i++) {
+            int x = random.nextInt(fieldSize);
+            int y = random.nextInt(fieldSize);
+            if (random.nextBoolean()) {
+                grid.plant(x, y);
+            } else {
+                grid.damage(x, y);
+            }
+        }
+        snapshots.publish();
+        panel.refresh();
+        panel.paintComponent(graphics);
+        return image;
+    }
+}
@@ -0,0 +1,112 @@
+package ui;
+
+import config.CellStorageType;
+import grid.CellStorage;
+import grid.Grid;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Save/load round-trips of a field: the GridFile format against the older serialized GridState
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaveLoadBenchmark {
+    @Param({"100", "1000", "2000"})
+    int fieldSize;
+
+    // MIXED is a busy farm where run-length encoding barely helps, SPARSE a mostly empty one
+    @Param({"MIXED", "SPARSE"})
+    String layout;
+
+    private Grid grid;
+    private byte[] cells;
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        grid = new Grid(fieldSize, CellStorageType.PACKED);
+        Random random = new Random(42);
+        int planted = "SPARSE".equals(layout) ? fieldSize * fieldSize / 50 : fieldSize * fieldSize / 2;
+        for (int i = 0; i < planted; i++) {
+            int x = random.nextInt(fieldSize);
+            int y = random.nextInt(fieldSize);
+            switch (random.nextInt(4)) {
+                case 0:
+                    // Only a crop can be damaged
+                    grid.plant(x, y);
+                    grid.damage(x, y);
+                    break;
+                default:
+                    grid.plant(x, y);
+                    for (int stage = random.nextInt(CellStorage.MAX_GROWTH + 1); stage > 0; stage--) {
+                        grid.grow(x, y);
+                    }
+            }
+        }
+        cells = new byte[fieldSize * fieldSize];
+        grid.copyCells(cells);
+        file = Files.createTempFile("carrot-farm-bench", ".bin");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public byte[] gridFileRoundTrip() throws IOException {
+        grid.copyCells(cells);
+        GridFile.write(file, fieldSize, cells, null, p -> { });
+        byte[] loaded = GridFile.read(file, fieldSize, p -> { }).cells;
+        grid.loadCells(loaded);
+        return loaded;
+    }
+
+    // In memory, so this measures serialization alone and flatters the old format
+    @Benchmark
+    public byte[] legacyGridStateRoundTrip() throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(new GridState(grid));
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            byte[] loaded = ((GridState) in.readObject()).toCells();
+            grid.loadCells(loaded);
+            return loaded;
+        }
+    }
+
+    // Both formats must give back exactly the field that was saved
+    @TearDown(Level.Iteration)
+    public void verify() {
+        byte[] current = new byte[cells.length];
+        grid.copyCells(current);
+        if (!Arrays.equals(current, cells)) {
+            throw new IllegalStateException("Round-trip changed the field");
+        }
+    }
+}
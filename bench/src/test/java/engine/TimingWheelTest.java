@@ -0,0 +1,109 @@
+package engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+// Timeouts fire once, not before their delay, in deadline order, also past one turn of the wheel
+class TimingWheelTest {
+    private TimingWheel wheel;
+
+    @AfterEach
+    void stopWheel() {
+        if (wheel != null) {
+            wheel.stop();
+        }
+    }
+
+    @Test
+    void firesNoEarlierThanTheDelay() throws InterruptedException {
+        wheel = new TimingWheel(5, Runnable::run, "test-wheel");
+        CountDownLatch fired = new CountDownLatch(1);
+        AtomicLong firedAt = new AtomicLong();
+        long start = System.nanoTime();
+        wheel.schedule(() -> {
+            firedAt.set(System.nanoTime());
+            fired.countDown();
+        }, 100);
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(firedAt.get() - start) >= 100);
+    }
+
+    @Test
+    void zeroDelayRunsRightAway() {
+        wheel = new TimingWheel(1000, Runnable::run, "test-wheel");
+        AtomicInteger runs = new AtomicInteger();
+        wheel.schedule(runs::incrementAndGet, 0);
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void delaysLongerThanOneTurnWaitForTheirRound() throws InterruptedException {
+        // One turn of the wheel is WHEEL_SIZE ms here
+        wheel = new TimingWheel(1, Runnable::run, "test-wheel");
+        long delay = TimingWheel.WHEEL_SIZE + 200;
+        CountDownLatch fired = new CountDownLatch(1);
+        AtomicLong firedAt = new AtomicLong();
+        long start = System.nanoTime();
+        wheel.schedule(() -> {
+            firedAt.set(System.nanoTime());
+            fired.countDown();
+        }, delay);
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(firedAt.get() - start) >= delay);
+    }
+
+    @Test
+    void firesInDeadlineOrder() throws InterruptedException {
+        wheel = new TimingWheel(10, Runnable::run, "test-wheel");
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        CountDownLatch fired = new CountDownLatch(3);
+        for (int delay : new int[] {300, 50, 150}) {
+            wheel.schedule(() -> {
+                order.add(delay);
+                fired.countDown();
+            }, delay);
+        }
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(50, 150, 300), order);
+    }
+
+    @Test
+    void everyTimeoutFiresExactlyOnce() throws InterruptedException {
+        wheel = new TimingWheel(1, Runnable::run, "test-wheel");
+        int count = 10_000;
+        ConcurrentHashMap<Integer, Integer> runs = new ConcurrentHashMap<>();
+        CountDownLatch fired = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            int id = i;
+            wheel.schedule(() -> {
+                runs.merge(id, 1, Integer::sum);
+                fired.countDown();
+            }, id % 1200);
+        }
+        assertTrue(fired.await(10, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals(count, runs.size());
+        assertTrue(runs.values().stream().allMatch(n -> n == 1));
+    }
+
+    @Test
+    void stopDropsPendingTimeouts() throws InterruptedException {
+        wheel = new TimingWheel(1, Runnable::run, "test-wheel");
+        AtomicInteger runs = new AtomicInteger();
+        wheel.schedule(runs::incrementAndGet, 100);
+        wheel.stop();
+        wheel.schedule(runs::incrementAndGet, 0);
+        Thread.sleep(200);
+        assertEquals(0, runs.get());
+    }
+}
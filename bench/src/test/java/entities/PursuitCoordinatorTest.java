@@ -0,0 +1,138 @@
+package entities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import config.CellStorageType;
+import grid.Grid;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+// Every rabbit has at most one dog after it, and only that dog catches it, exactly once
+class PursuitCoordinatorTest {
+    private static final int SIZE = 32;
+    private static final int RANGE = SIZE;
+
+    private final Grid grid = new Grid(SIZE, CellStorageType.PACKED);
+    private final PursuitCoordinator pursuits = grid.getPursuits();
+
+    private Rabbit rabbitAt(int x, int y) {
+        Rabbit rabbit = new Rabbit(x, y, grid);
+        grid.addEntity(rabbit);
+        return rabbit;
+    }
+
+    @Test
+    void dogsAtTheSameSpotChaseDifferentRabbits() {
+        Rabbit near = rabbitAt(5, 5);
+        Rabbit far = rabbitAt(9, 9);
+        Dog first = new Dog(4, 4, grid);
+        Dog second = new Dog(4, 4, grid);
+        assertEquals(near, pursuits.claimNearest(first, RANGE));
+        assertEquals(far, pursuits.claimNearest(second, RANGE));
+        assertNull(pursuits.claimNearest(new Dog(4, 4, grid), RANGE));
+    }
+
+    @Test
+    void racingDogsClaimEachRabbitOnce() throws Exception {
+        List<Rabbit> rabbits = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            rabbits.add(rabbitAt(i % SIZE, i / SIZE * 7));
+        }
+        List<Dog> dogs = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            dogs.add(new Dog(SIZE / 2, SIZE / 2, grid));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Callable<Rabbit>> claims = new ArrayList<>();
+        for (Dog dog : dogs) {
+            claims.add(() -> pursuits.claimNearest(dog, RANGE));
+        }
+        Set<Rabbit> claimed = new HashSet<>();
+        int won = 0;
+        for (Future<Rabbit> result : pool.invokeAll(claims)) {
+            Rabbit rabbit = result.get(30, TimeUnit.SECONDS);
+            if (rabbit != null) {
+                assertTrue(claimed.add(rabbit));
+                won++;
+            }
+        }
+        pool.shutdown();
+        // A dog may give up after losing a few races, so not every rabbit has to be taken
+        assertTrue(won <= rabbits.size());
+        for (Rabbit rabbit : rabbits) {
+            assertEquals(claimed.contains(rabbit), rabbit.isClaimed());
+        }
+    }
+
+    @Test
+    void onlyTheClaimingDogCatchesExactlyOnce() throws Exception {
+        Rabbit rabbit = rabbitAt(3, 3);
+        Dog owner = new Dog(3, 3, grid);
+        Dog other = new Dog(3, 3, grid);
+        assertTrue(pursuits.claim(owner, rabbit));
+        assertFalse(pursuits.claim(other, rabbit));
+        assertFalse(pursuits.capture(other, rabbit));
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Callable<Boolean>> captures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            captures.add(() -> pursuits.capture(owner, rabbit));
+        }
+        AtomicInteger caught = new AtomicInteger();
+        for (Future<Boolean> result : pool.invokeAll(captures)) {
+            if (result.get(30, TimeUnit.SECONDS)) {
+                caught.incrementAndGet();
+            }
+        }
+        pool.shutdown();
+        assertEquals(1, caught.get());
+        assertEquals(1, grid.getStats().getRabbitsCaught());
+        assertFalse(rabbit.isActive());
+    }
+
+    @Test
+    void releasedRabbitCanBeClaimedByAnotherDog() {
+        Rabbit rabbit = rabbitAt(3, 3);
+        Dog first = new Dog(2, 2, grid);
+        Dog second = new Dog(2, 2, grid);
+        assertTrue(pursuits.claim(first, rabbit));
+        // Only the claiming dog can let go
+        pursuits.release(second, rabbit);
+        assertFalse(pursuits.claim(second, rabbit));
+        pursuits.release(first, rabbit);
+        assertTrue(pursuits.claim(second, rabbit));
+    }
+
+    @Test
+    void caughtRabbitCannotBeClaimed() {
+        Rabbit rabbit = rabbitAt(3, 3);
+        Dog dog = new Dog(3, 3, grid);
+        assertTrue(pursuits.claim(dog, rabbit));
+        assertTrue(pursuits.capture(dog, rabbit));
+        pursuits.release(dog, rabbit);
+        assertFalse(pursuits.claim(new Dog(3, 3, grid), rabbit));
+    }
+
+    @Test
+    void stoppedDogReleasesItsRabbit() {
+        Rabbit rabbit = rabbitAt(10, 10);
+        Dog dog = new Dog(5, 5, grid);
+        dog.step();
+        assertTrue(rabbit.isClaimed());
+        dog.stopRunning();
+        assertFalse(rabbit.isClaimed());
+        assertEquals(rabbit, pursuits.claimNearest(new Dog(5, 5, grid), RANGE));
+    }
+}
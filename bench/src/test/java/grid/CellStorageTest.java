@@ -0,0 +1,130 @@
+package grid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+// Transitions only fire from the state they expect, on every backend, also with threads racing
+class CellStorageTest {
+    private static final int THREADS = 8;
+
+    private static CellStorage create(String backend, int size) {
+        switch (backend) {
+            case "OBJECT":
+                return new ObjectCellStorage(size);
+            case "REGION":
+                return new RegionCellStorage(new RegionLayout(size, 2));
+            default:
+                return new PackedCellStorage(size);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"OBJECT", "PACKED", "REGION"})
+    void transitionsOnlyFromTheExpectedState(String backend) {
+        CellStorage cells = create(backend, 4);
+        assertFalse(cells.damage(1, 1));
+        assertFalse(cells.repair(1, 1));
+        assertTrue(cells.plant(1, 1));
+        assertFalse(cells.plant(1, 1));
+        assertEquals(CellState.GROWING, cells.getState(1, 1));
+
+        for (int stage = 1; stage < CellStorage.MAX_GROWTH; stage++) {
+            assertTrue(cells.grow(1, 1));
+        }
+        assertTrue(cells.grow(1, 1));
+        assertEquals(CellState.READY, cells.getState(1, 1));
+        assertFalse(cells.grow(1, 1));
+        assertFalse(cells.repair(1, 1));
+
+        assertTrue(cells.damage(1, 1));
+        assertFalse(cells.damage(1, 1));
+        assertFalse(cells.plant(1, 1));
+        assertTrue(cells.repair(1, 1));
+        assertEquals(CellStorage.pack(CellState.EMPTY, 0), cells.read(1, 1));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"OBJECT", "PACKED", "REGION"})
+    void racingThreadsWinEachTransitionOnce(String backend) throws Exception {
+        int size = 16;
+        CellStorage cells = create(backend, size);
+        for (String step : new String[] {"plant", "damage", "repair"}) {
+            AtomicInteger wins = new AtomicInteger();
+            race(() -> {
+                for (int x = 0; x < size; x++) {
+                    for (int y = 0; y < size; y++) {
+                        boolean won = step.equals("plant") ? cells.plant(x, y)
+                                : step.equals("damage") ? cells.damage(x, y) : cells.repair(x, y);
+                        if (won) {
+                            wins.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            assertEquals(size * size, wins.get(), step);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"OBJECT", "PACKED", "REGION"})
+    void damageWhileGrowingLeavesNoHalfGrownCell(String backend) throws Exception {
+        int size = 16;
+        CellStorage cells = create(backend, size);
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                cells.plant(x, y);
+            }
+        }
+        AtomicInteger eaten = new AtomicInteger();
+        AtomicInteger turn = new AtomicInteger();
+        race(() -> {
+            boolean biter = turn.getAndIncrement() % 2 == 0;
+            for (int round = 0; round < CellStorage.MAX_GROWTH; round++) {
+                for (int x = 0; x < size; x++) {
+                    for (int y = 0; y < size; y++) {
+                        if (!biter) {
+                            cells.grow(x, y);
+                        } else if (cells.damage(x, y)) {
+                            eaten.incrementAndGet();
+                        }
+                    }
+                }
+            }
+        });
+        assertEquals(size * size, eaten.get());
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                assertEquals(CellStorage.pack(CellState.DAMAGED, 0), cells.read(x, y));
+            }
+        }
+    }
+
+    // Run the task on every thread at once and wait for all of them
+    private static void race(Runnable task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        Future<?>[] done = new Future<?>[THREADS];
+        for (int i = 0; i < THREADS; i++) {
+            done[i] = pool.submit(() -> {
+                start.await();
+                task.run();
+                return null;
+            });
+        }
+        start.countDown();
+        for (Future<?> future : done) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,123 @@
+package grid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+// Changes published from any thread reach subscribers coalesced, or as a resync when some were lost
+class ChangeBusTest {
+    private final ChangeBus bus = new ChangeBus();
+    private final List<Integer> cellCounts = new ArrayList<>();
+    private final BitSet cells = new BitSet();
+    private boolean resync;
+
+    private final ChangeListener listener = batch -> {
+        cellCounts.add(batch.getCellCount());
+        batch.addCellsTo(cells);
+        resync |= batch.isResync();
+    };
+
+    @Test
+    void nothingIsRecordedWithoutSubscribers() {
+        bus.cellChanged(1);
+        bus.drain();
+        bus.subscribe(listener);
+        bus.drain();
+        assertTrue(cellCounts.isEmpty());
+    }
+
+    @Test
+    void repeatedChangesToACellAreCoalesced() {
+        bus.subscribe(listener);
+        for (int i = 0; i < 10; i++) {
+            bus.cellChanged(7);
+        }
+        bus.cellsChanged(20, 30);
+        bus.drain();
+        assertEquals(List.of(11), cellCounts);
+        assertTrue(cells.get(7));
+        assertEquals(10, cells.get(20, 30).cardinality());
+        assertFalse(resync);
+        bus.drain();
+        assertEquals(1, cellCounts.size());
+    }
+
+    @Test
+    void overflowTurnsIntoAResync() {
+        bus.subscribe(listener);
+        for (int i = 0; i < 100_000; i++) {
+            bus.cellChanged(i);
+        }
+        bus.drain();
+        assertTrue(resync);
+        resync = false;
+        bus.cellChanged(1);
+        bus.drain();
+        assertFalse(resync);
+    }
+
+    @Test
+    void resetIsAResync() {
+        bus.subscribe(listener);
+        bus.reset();
+        bus.drain();
+        assertTrue(resync);
+    }
+
+    @Test
+    void unsubscribedListenerHearsNothing() {
+        bus.subscribe(listener);
+        bus.unsubscribe(listener);
+        bus.cellChanged(3);
+        bus.drain();
+        assertTrue(cellCounts.isEmpty());
+    }
+
+    @Test
+    void changesFromManyThreadsAllArriveWhileDraining() throws InterruptedException {
+        ChangeTracker tracker = new ChangeTracker();
+        bus.subscribe(tracker);
+        BitSet seen = new BitSet();
+        tracker.takeInto(seen);
+
+        // Fewer events than one ring holds, so even with every thread on the same ring none is dropped
+        int threads = 16;
+        int perThread = 250;
+        AtomicBoolean done = new AtomicBoolean();
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int first = t * perThread;
+            Thread producer = new Thread(() -> {
+                for (int i = first; i < first + perThread; i++) {
+                    bus.cellChanged(i);
+                    if (i % 16 == 0) {
+                        Thread.yield();
+                    }
+                }
+            });
+            producer.start();
+            producers.add(producer);
+        }
+        Thread drainer = new Thread(() -> {
+            while (!done.get()) {
+                bus.drain();
+            }
+        });
+        drainer.start();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        done.set(true);
+        drainer.join();
+        bus.drain();
+
+        assertFalse(tracker.takeInto(seen));
+        assertEquals(threads * perThread, seen.cardinality());
+    }
+}
@@ -0,0 +1,60 @@
+package grid;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import grid.FarmHistory.Stat;
+import org.junit.jupiter.api.Test;
+
+// Each sample records what happened since the previous one; every sixtieth closes a minute
+class FarmHistoryTest {
+    private final FarmStats stats = new FarmStats();
+
+    @Test
+    void countsBeforeTheHistoryStartedAreLeftOut() {
+        stats.planted();
+        stats.planted();
+        FarmHistory history = new FarmHistory(stats);
+        stats.planted();
+        history.sample();
+        assertArrayEquals(new long[] {1}, history.getPerSecond(Stat.PLANTED).toArray());
+    }
+
+    @Test
+    void eachSecondHoldsItsOwnEvents() {
+        FarmHistory history = new FarmHistory(stats);
+        for (int second = 0; second < 5; second++) {
+            for (int i = 0; i < second; i++) {
+                stats.eaten();
+            }
+            stats.rabbitCaught();
+            history.sample();
+        }
+        assertArrayEquals(new long[] {0, 1, 2, 3, 4}, history.getPerSecond(Stat.EATEN).toArray());
+        assertArrayEquals(new long[] {1, 1, 1, 1, 1}, history.getPerSecond(Stat.RABBITS_CAUGHT).toArray());
+        assertArrayEquals(new long[] {0, 0, 0, 0, 0}, history.getPerSecond(Stat.REPAIRED).toArray());
+    }
+
+    @Test
+    void everySixtiethSampleClosesAMinute() {
+        FarmHistory history = new FarmHistory(stats);
+        for (int second = 0; second < 150; second++) {
+            stats.repaired();
+            if (second >= 60) {
+                stats.repaired();
+            }
+            history.sample();
+        }
+        assertArrayEquals(new long[] {60, 120}, history.getPerMinute(Stat.REPAIRED).toArray());
+        assertEquals(150, history.getPerSecond(Stat.REPAIRED).toArray().length);
+    }
+
+    @Test
+    void secondsAreCappedToTheirWindow() {
+        FarmHistory history = new FarmHistory(stats);
+        for (int second = 0; second < FarmHistory.SECONDS + 10; second++) {
+            history.sample();
+        }
+        assertEquals(FarmHistory.SECONDS, history.getPerSecond(Stat.PLANTED).toArray().length);
+    }
+}
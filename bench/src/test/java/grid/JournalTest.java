@@ -0,0 +1,221 @@
+package grid;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import config.CellStorageType;
+import entities.EntityType;
+import entities.Rabbit;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Replaying a journal onto the state it started from gives the grid's current state
+class JournalTest {
+    private static final int SIZE = 64;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replayRebuildsCellsAndEntities() throws IOException {
+        Grid grid = new Grid(SIZE, CellStorageType.PACKED);
+        Path segment = dir.resolve("journal-1.log");
+        Journal journal = new Journal(Journal.openSegment(segment));
+        grid.setJournal(journal);
+
+        Random random = new Random(1);
+        List<Rabbit> rabbits = new ArrayList<>();
+        for (int round = 0; round < 2000; round++) {
+            int x = random.nextInt(SIZE);
+            int y = random.nextInt(SIZE);
+            switch (random.nextInt(6)) {
+                case 0:
+                    grid.damage(x, y);
+                    break;
+                case 1:
+                    grid.repair(x, y);
+                    break;
+                case 2:
+                    Rabbit rabbit = new Rabbit(x, y, grid);
+                    grid.addEntity(rabbit);
+                    rabbits.add(rabbit);
+                    break;
+                case 3:
+                    if (!rabbits.isEmpty()) {
+                        grid.removeEntity(rabbits.remove(random.nextInt(rabbits.size())));
+                    }
+                    break;
+                default:
+                    grid.plant(x, y);
+            }
+            if (round % 50 == 0) {
+                grid.updateGrowth();
+            }
+        }
+        journal.close();
+
+        Replay replay = new Replay(new byte[SIZE * SIZE]);
+        Journal.replay(segment, SIZE, replay);
+        assertArrayEquals(cellsOf(grid), replay.cells);
+        assertEquals(rabbits.size(), replay.entities.size());
+        for (Rabbit rabbit : rabbits) {
+            assertEquals(EntityType.RABBIT, replay.entities.get(rabbit.getId()));
+        }
+    }
+
+    @Test
+    void replayMatchesTheGridWithChangesRacingGrowthTicks() throws Exception {
+        Grid grid = new Grid(SIZE, CellStorageType.PACKED);
+        Path segment = dir.resolve("journal-1.log");
+        Journal journal = new Journal(Journal.openSegment(segment));
+        grid.setJournal(journal);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (running.get()) {
+                    int x = random.nextInt(SIZE);
+                    int y = random.nextInt(SIZE);
+                    switch (random.nextInt(3)) {
+                        case 0:
+                            grid.plant(x, y);
+                            break;
+                        case 1:
+                            grid.damage(x, y);
+                            break;
+                        default:
+                            grid.repair(x, y);
+                    }
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        for (int tick = 0; tick < 200; tick++) {
+            grid.updateGrowth(pool);
+        }
+        running.set(false);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+        journal.close();
+
+        Replay replay = new Replay(new byte[SIZE * SIZE]);
+        Journal.replay(segment, SIZE, replay);
+        assertArrayEquals(cellsOf(grid), replay.cells);
+    }
+
+    @Test
+    void recordCutShortEndsTheReplay() throws IOException {
+        Grid grid = new Grid(SIZE, CellStorageType.PACKED);
+        Path segment = dir.resolve("journal-1.log");
+        Journal journal = new Journal(Journal.openSegment(segment));
+        grid.setJournal(journal);
+        grid.plant(1, 1);
+        grid.plant(2, 2);
+        journal.close();
+
+        byte[] whole = Files.readAllBytes(segment);
+        Files.write(segment, Arrays.copyOf(whole, whole.length - 2));
+        Replay replay = new Replay(new byte[SIZE * SIZE]);
+        Journal.replay(segment, SIZE, replay);
+        assertEquals(CellStorage.pack(CellState.GROWING, 0), replay.cells[1 * SIZE + 1]);
+        assertEquals(CellStorage.pack(CellState.EMPTY, 0), replay.cells[2 * SIZE + 2]);
+    }
+
+    @Test
+    void rejectsFilesThatAreNoJournal() throws IOException {
+        Path other = dir.resolve("other.log");
+        Files.write(other, new byte[] {1, 2, 3, 4, 5});
+        assertThrows(IOException.class, () -> Journal.replay(other, SIZE, new Replay(new byte[SIZE * SIZE])));
+    }
+
+    @Test
+    void rejectsRecordsOutsideTheGrid() throws IOException {
+        Grid grid = new Grid(SIZE * 2, CellStorageType.PACKED);
+        Path segment = dir.resolve("journal-1.log");
+        Journal journal = new Journal(Journal.openSegment(segment));
+        grid.setJournal(journal);
+        grid.plant(SIZE + 1, 1);
+        journal.close();
+
+        // Written for a larger grid, so the cell index is past the end of this one
+        IOException e = assertThrows(IOException.class,
+                () -> Journal.replay(segment, SIZE, new Replay(new byte[SIZE * SIZE])));
+        assertTrue(e.getMessage().startsWith("Corrupt"));
+    }
+
+    @Test
+    void rejectsACellValueNoCellCanHold() throws IOException {
+        Grid grid = new Grid(SIZE, CellStorageType.PACKED);
+        Path segment = dir.resolve("journal-1.log");
+        Journal journal = new Journal(Journal.openSegment(segment));
+        grid.setJournal(journal);
+        grid.plant(1, 1);
+        journal.close();
+
+        // The value is the record's last byte; GROWING at stage 7 is past full growth
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[bytes.length - 1] = (byte) CellStorage.pack(CellState.GROWING, 7);
+        Files.write(segment, bytes);
+        assertThrows(IOException.class, () -> Journal.replay(segment, SIZE, new Replay(new byte[SIZE * SIZE])));
+    }
+
+    private static byte[] cellsOf(Grid grid) {
+        byte[] cells = new byte[SIZE * SIZE];
+        grid.copyCells(cells);
+        return cells;
+    }
+
+    // Applies records the way autosave recovery does
+    private static final class Replay implements Journal.Visitor {
+        final byte[] cells;
+        final Map<Integer, EntityType> entities = new LinkedHashMap<>();
+
+        Replay(byte[] cells) {
+            this.cells = cells;
+        }
+
+        @Override
+        public void cell(int index, int value) {
+            cells[index] = (byte) value;
+        }
+
+        @Override
+        public void grow(int from, int to) {
+            for (int i = from; i < to; i++) {
+                cells[i] = (byte) CellStorage.grown(cells[i]);
+            }
+        }
+
+        @Override
+        public void spawn(int id, EntityType type, int x, int y) {
+            entities.put(id, type);
+        }
+
+        @Override
+        public void remove(int id) {
+            entities.remove(id);
+        }
+    }
+}
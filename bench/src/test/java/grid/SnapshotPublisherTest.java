@@ -0,0 +1,133 @@
+package grid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import config.CellStorageType;
+import entities.Rabbit;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+// Snapshots brought up to date from the change bus hold exactly what a full copy would
+class SnapshotPublisherTest {
+    private static final int SIZE = 48;
+
+    private final Grid grid = new Grid(SIZE, CellStorageType.PACKED);
+    private final SnapshotPublisher publisher = new SnapshotPublisher(grid);
+    private final Random random = new Random(3);
+
+    private void changeSomeCells() {
+        for (int i = 0; i < 200; i++) {
+            int x = random.nextInt(SIZE);
+            int y = random.nextInt(SIZE);
+            switch (random.nextInt(3)) {
+                case 0:
+                    grid.plant(x, y);
+                    break;
+                case 1:
+                    grid.damage(x, y);
+                    break;
+                default:
+                    grid.repair(x, y);
+            }
+        }
+        grid.updateGrowth();
+    }
+
+    private void assertMatchesGrid(GridSnapshot snapshot) {
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                assertEquals(grid.readCell(x, y), snapshot.cellAt(x, y), "cell " + x + "," + y);
+            }
+        }
+        assertEquals(grid.getEntityCount(), snapshot.getEntityCount());
+    }
+
+    @Test
+    void nothingIsPublishedBeforeTheFirstPublish() {
+        assertNull(publisher.acquire());
+    }
+
+    @Test
+    void reusedBuffersCatchUpWithEveryChange() {
+        for (int round = 0; round < 30; round++) {
+            changeSomeCells();
+            if (round % 3 == 0) {
+                grid.addEntity(new Rabbit(random.nextInt(SIZE), random.nextInt(SIZE), grid));
+            }
+            publisher.publish();
+            GridSnapshot snapshot = publisher.acquire();
+            assertMatchesGrid(snapshot);
+            snapshot.release();
+        }
+    }
+
+    @Test
+    void changesBeforeTheFirstPublishAreIncluded() {
+        changeSomeCells();
+        publisher.publish();
+        changeSomeCells();
+        publisher.publish();
+        GridSnapshot snapshot = publisher.acquire();
+        assertMatchesGrid(snapshot);
+        snapshot.release();
+    }
+
+    @Test
+    void reloadedGridIsCapturedAgain() {
+        publisher.publish();
+        publisher.publish();
+        byte[] cells = new byte[SIZE * SIZE];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = (byte) CellStorage.pack(CellState.READY, CellStorage.MAX_GROWTH);
+        }
+        grid.loadCells(cells);
+        publisher.publish();
+        GridSnapshot snapshot = publisher.acquire();
+        assertMatchesGrid(snapshot);
+        snapshot.release();
+    }
+
+    @Test
+    void publishIsSkippedWhileReadersHoldEveryOtherBuffer() {
+        publisher.publish();
+        GridSnapshot first = publisher.acquire();
+        changeSomeCells();
+        publisher.publish();
+        GridSnapshot second = publisher.acquire();
+        changeSomeCells();
+        publisher.publish();
+        GridSnapshot latest = publisher.acquire();
+
+        // Latest plus two pinned: the pool is used up, so readers keep seeing the latest
+        changeSomeCells();
+        publisher.publish();
+        GridSnapshot skipped = publisher.acquire();
+        assertSame(latest, skipped);
+        skipped.release();
+
+        // A buffer coming free again picks up what changed while the pool was full
+        first.release();
+        second.release();
+        latest.release();
+        publisher.publish();
+        GridSnapshot caughtUp = publisher.acquire();
+        assertNotNull(caughtUp);
+        assertMatchesGrid(caughtUp);
+        caughtUp.release();
+    }
+
+    @Test
+    void versionsIncreaseWithEveryPublish() {
+        publisher.publish();
+        GridSnapshot first = publisher.acquire();
+        long version = first.getVersion();
+        first.release();
+        publisher.publish();
+        GridSnapshot second = publisher.acquire();
+        assertEquals(version + 1, second.getVersion());
+        second.release();
+    }
+}
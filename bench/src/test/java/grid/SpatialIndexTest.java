@@ -0,0 +1,78 @@
+package grid;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import config.CellStorageType;
+import entities.Rabbit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.Test;
+
+// Entities leave the index when removed, wherever they moved to, also while they are still moving
+class SpatialIndexTest {
+    private static final int SIZE = 64;
+
+    @Test
+    void movedEntityIsFoundInItsNewBucketAndRemovedFromIt() {
+        SpatialIndex index = new SpatialIndex(SIZE);
+        Grid grid = new Grid(SIZE, CellStorageType.PACKED);
+        Rabbit rabbit = new Rabbit(1, 1, grid);
+        index.add(rabbit, 1, 1);
+        // Only the index is told about the move, so the rabbit still stands at (1, 1) but now sits in
+        // the bucket of (40, 40): a search there reaches it, one near (1, 1) no longer does
+        index.move(rabbit, 40, 40);
+        assertNull(index.nearest(1, 1, 0, e -> true));
+        assertSame(rabbit, index.nearest(40, 40, 40, e -> true));
+        // Removal goes by the recorded bucket, not the position
+        index.remove(rabbit);
+        assertNull(index.nearest(SIZE / 2, SIZE / 2, SIZE, e -> true));
+        // A straggling move after removal doesn't put it back
+        index.move(rabbit, 1, 1);
+        assertNull(index.nearest(SIZE / 2, SIZE / 2, SIZE, e -> true));
+    }
+
+    @Test
+    void removalRacingMovesLeavesNothingBehind() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            Grid grid = new Grid(SIZE, CellStorageType.PACKED);
+            List<Rabbit> rabbits = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                Rabbit rabbit = new Rabbit(i % SIZE, (i * 7) % SIZE, grid);
+                grid.addEntity(rabbit);
+                rabbits.add(rabbit);
+            }
+            CountDownLatch start = new CountDownLatch(1);
+            Thread mover = new Thread(() -> {
+                await(start);
+                // Nothing is planted, so every step is a random move
+                for (int step = 0; step < 50; step++) {
+                    for (Rabbit rabbit : rabbits) {
+                        rabbit.step();
+                    }
+                }
+            });
+            Thread remover = new Thread(() -> {
+                await(start);
+                for (Rabbit rabbit : rabbits) {
+                    grid.removeEntity(rabbit);
+                }
+            });
+            mover.start();
+            remover.start();
+            start.countDown();
+            mover.join();
+            remover.join();
+            assertNull(grid.findNearbyRabbit(SIZE / 2, SIZE / 2, SIZE));
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
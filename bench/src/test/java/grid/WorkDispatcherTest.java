@@ -0,0 +1,135 @@
+package grid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import config.CellStorageType;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+// Farmers get the nearest cell needing work, never one another farmer holds, until their lease lapses
+class WorkDispatcherTest {
+    private static final int SIZE = 16;
+    // Enough growth ticks for any lease that isn't renewed to run out
+    private static final int LAPSE_TICKS = 4;
+
+    private final Grid grid = new Grid(SIZE, CellStorageType.PACKED);
+    private final WorkDispatcher work = grid.getWork();
+
+    @Test
+    void claimsTheNearestCellNeedingWork() {
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                if (x != 3 || y != 12) {
+                    grid.plant(x, y);
+                }
+            }
+        }
+        WorkDispatcher.Lease lease = work.claim(1, 10, 10);
+        assertNotNull(lease);
+        assertEquals(3, lease.getX());
+        assertEquals(12, lease.getY());
+        assertNull(work.claim(2, 10, 10));
+    }
+
+    @Test
+    void damagedCellsAreOfferedForRepair() {
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                grid.plant(x, y);
+            }
+        }
+        assertNull(work.claim(1, 0, 0));
+        grid.damage(7, 7);
+        WorkDispatcher.Lease lease = work.claim(1, 0, 0);
+        assertNotNull(lease);
+        assertEquals(7, lease.getX());
+        assertEquals(7, lease.getY());
+    }
+
+    @Test
+    void twoFarmersNeverGetTheSameCell() {
+        WorkDispatcher.Lease first = work.claim(1, 5, 5);
+        WorkDispatcher.Lease second = work.claim(2, 5, 5);
+        assertEquals(5, first.getX());
+        assertEquals(5, first.getY());
+        assertNotEquals(first.getX() * SIZE + first.getY(), second.getX() * SIZE + second.getY());
+        assertEquals(2, work.getLeaseCount());
+    }
+
+    @Test
+    void racingFarmersSplitTheFieldBetweenThem() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Callable<List<WorkDispatcher.Lease>>> farmers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            int id = i + 1;
+            farmers.add(() -> {
+                List<WorkDispatcher.Lease> mine = new ArrayList<>();
+                // A claim may come back empty while others take the cells it found, so stop on an empty field
+                while (work.getLeaseCount() < SIZE * SIZE) {
+                    WorkDispatcher.Lease lease = work.claim(id, SIZE / 2, SIZE / 2);
+                    if (lease != null) {
+                        mine.add(lease);
+                    }
+                }
+                return mine;
+            });
+        }
+        Set<Integer> cells = new HashSet<>();
+        int claimed = 0;
+        for (Future<List<WorkDispatcher.Lease>> result : pool.invokeAll(farmers)) {
+            for (WorkDispatcher.Lease lease : result.get(30, TimeUnit.SECONDS)) {
+                assertTrue(cells.add(lease.getX() * SIZE + lease.getY()));
+                claimed++;
+            }
+        }
+        pool.shutdown();
+        assertEquals(SIZE * SIZE, claimed);
+    }
+
+    @Test
+    void releasedCellIsOfferedAgain() {
+        WorkDispatcher.Lease lease = work.claim(1, 0, 0);
+        lease.release();
+        assertEquals(0, work.getLeaseCount());
+        WorkDispatcher.Lease again = work.claim(2, 0, 0);
+        assertEquals(lease.getX(), again.getX());
+        assertEquals(lease.getY(), again.getY());
+    }
+
+    @Test
+    void leaseLapsesUnlessRenewed() {
+        WorkDispatcher.Lease kept = work.claim(1, 0, 0);
+        WorkDispatcher.Lease dropped = work.claim(2, SIZE - 1, SIZE - 1);
+        for (int i = 0; i < LAPSE_TICKS; i++) {
+            assertTrue(kept.renew(0));
+            grid.updateGrowth();
+        }
+        assertTrue(kept.renew(0));
+        assertFalse(dropped.renew(0));
+        assertEquals(1, work.getLeaseCount());
+        WorkDispatcher.Lease again = work.claim(3, SIZE - 1, SIZE - 1);
+        assertEquals(SIZE - 1, again.getX());
+        assertEquals(SIZE - 1, again.getY());
+    }
+
+    @Test
+    void onlyOwnedCellsAreOffered() {
+        grid.setOwned(new Area(8, 0, 8, SIZE));
+        WorkDispatcher.Lease lease = work.claim(1, 0, 0);
+        assertEquals(8, lease.getX());
+        assertEquals(0, lease.getY());
+    }
+}
@@ -0,0 +1,46 @@
+package metrics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+// The ring keeps the latest values, oldest first, and never grows past its capacity
+class TimeSeriesTest {
+    @Test
+    void startsEmpty() {
+        TimeSeries series = new TimeSeries(1000, 4);
+        assertEquals(0, series.toArray().length);
+        assertEquals(4, series.getCapacity());
+        assertEquals(1000, series.getIntervalMillis());
+    }
+
+    @Test
+    void keepsValuesInOrderUntilFull() {
+        TimeSeries series = new TimeSeries(1000, 4);
+        series.add(1);
+        series.add(2);
+        series.add(3);
+        assertArrayEquals(new long[] {1, 2, 3}, series.toArray());
+        series.add(4);
+        assertArrayEquals(new long[] {1, 2, 3, 4}, series.toArray());
+    }
+
+    @Test
+    void newValuesReplaceTheOldestOnceFull() {
+        TimeSeries series = new TimeSeries(1000, 4);
+        for (long value = 1; value <= 10; value++) {
+            series.add(value);
+        }
+        assertArrayEquals(new long[] {7, 8, 9, 10}, series.toArray());
+    }
+
+    @Test
+    void wrapsAroundManyTimes() {
+        TimeSeries series = new TimeSeries(1000, 3);
+        for (long value = 0; value < 100_001; value++) {
+            series.add(value);
+        }
+        assertArrayEquals(new long[] {99_998, 99_999, 100_000}, series.toArray());
+    }
+}
@@ -0,0 +1,74 @@
+package ui;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import config.ExecutionMode;
+import config.GameConfig;
+import config.GrowthMode;
+import entities.Entity;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+// Recovering the latest checkpoint and its journal gives the field as the simulation left it
+class AutosaveTest {
+    private static final int SIZE = 80;
+
+    @TempDir
+    Path dir;
+
+    @ParameterizedTest
+    @EnumSource(value = GrowthMode.class)
+    void recoveryMatchesTheStoppedSimulation(GrowthMode growth) throws Exception {
+        GameConfig config = GameConfig.getInstance().copy();
+        Properties props = new Properties();
+        props.setProperty("autosaveDirectory", dir.toString());
+        config.apply(props);
+        config.setExecutionMode(ExecutionMode.POOLED);
+        config.setGrowthMode(growth);
+        config.setRabbitSpawnRate(1.0);
+        config.setAutosaveInterval(1);
+        config.setTimeScale(50);
+
+        Simulation simulation = new Simulation(SIZE, 32, config, 5);
+        simulation.setPublishSnapshots(false);
+        simulation.startSimulation();
+        // Long enough for a second checkpoint, so recovery replays a segment that was rotated out
+        Thread.sleep(2500);
+        simulation.stopSimulation();
+
+        byte[] live = new byte[SIZE * SIZE];
+        simulation.getGrid().copyCells(live);
+        // Checkpoints leave out rabbits that were done but not reaped yet, so only the active entities
+        // have to come back, and nothing that isn't in the registry any more
+        Set<Integer> active = new TreeSet<>();
+        Set<Integer> registered = new TreeSet<>();
+        for (Entity entity : simulation.getGrid().getEntities()) {
+            registered.add(entity.getId());
+            if (entity.isActive()) {
+                active.add(entity.getId());
+            }
+        }
+        GridFile.Contents recovered = Autosave.recover(dir, SIZE, p -> { });
+        assertArrayEquals(live, recovered.cells);
+        Set<Integer> restored = new TreeSet<>();
+        for (GridFile.SavedEntity entity : recovered.entities) {
+            restored.add(entity.id);
+        }
+        assertTrue(restored.containsAll(active));
+        assertTrue(registered.containsAll(restored));
+    }
+
+    @Test
+    void nothingToRecoverIsAnError() {
+        assertThrows(IOException.class, () -> Autosave.recover(dir, SIZE, p -> { }));
+    }
+}
@@ -0,0 +1,157 @@
+package ui;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import entities.EntityType;
+import grid.CellState;
+import grid.CellStorage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Saves read back as written, and damaged files fail with an IOException instead of a huge allocation
+class GridFileTest {
+    // Offsets into the header: magic, version, flags, field size, payload length
+    private static final int PAYLOAD_LENGTH_AT = 4 + 2 + 1 + 4;
+    private static final int HEADER_BYTES = PAYLOAD_LENGTH_AT + 4;
+
+    @TempDir
+    Path dir;
+
+    // Every value a cell can hold
+    private static final byte[] VALUES = new byte[CellStorage.MAX_GROWTH + 3];
+
+    static {
+        int n = 0;
+        VALUES[n++] = (byte) CellStorage.pack(CellState.EMPTY, 0);
+        VALUES[n++] = (byte) CellStorage.pack(CellState.DAMAGED, 0);
+        VALUES[n++] = (byte) CellStorage.pack(CellState.READY, CellStorage.MAX_GROWTH);
+        for (int stage = 0; stage < CellStorage.MAX_GROWTH; stage++) {
+            VALUES[n++] = (byte) CellStorage.pack(CellState.GROWING, stage);
+        }
+    }
+
+    private static byte[] randomCells(int size) {
+        byte[] cells = new byte[size * size];
+        Random random = new Random(7);
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = VALUES[random.nextInt(VALUES.length)];
+        }
+        return cells;
+    }
+
+    private static List<GridFile.SavedEntity> someEntities() {
+        return List.of(new GridFile.SavedEntity(1, EntityType.FARMER, 2, 3),
+                new GridFile.SavedEntity(2, EntityType.DOG, 4, 5),
+                new GridFile.SavedEntity(9, EntityType.RABBIT, 6, 7));
+    }
+
+    @Test
+    void runLengthEncodedFieldRoundTrips() throws IOException {
+        Path path = dir.resolve("field.bin");
+        byte[] cells = new byte[300 * 300];
+        Arrays.fill(cells, 1000, 5000, (byte) 5);
+        GridFile.write(path, 300, cells, null, p -> { });
+        // Long runs compress to far less than a byte per cell
+        assertTrue(Files.size(path) < cells.length / 10);
+        GridFile.Contents read = GridFile.read(path, 300, p -> { });
+        assertArrayEquals(cells, read.cells);
+        assertTrue(read.entities.isEmpty());
+    }
+
+    @Test
+    void rawFieldLargerThanOneChunkRoundTripsWithEntities() throws IOException {
+        Path path = dir.resolve("checkpoint.bin");
+        byte[] cells = randomCells(400);
+        GridFile.write(path, 400, cells, someEntities(), p -> { });
+        GridFile.Contents read = GridFile.read(path, 400, p -> { });
+        assertArrayEquals(cells, read.cells);
+        assertEquals(3, read.entities.size());
+        GridFile.SavedEntity rabbit = read.entities.get(2);
+        assertEquals(9, rabbit.id);
+        assertEquals(EntityType.RABBIT, rabbit.type);
+        assertEquals(6, rabbit.x);
+        assertEquals(7, rabbit.y);
+    }
+
+    @Test
+    void rejectsAFieldOfAnotherSize() throws IOException {
+        Path path = dir.resolve("field.bin");
+        GridFile.write(path, 20, new byte[400], null, p -> { });
+        assertThrows(IOException.class, () -> GridFile.read(path, 30, p -> { }));
+    }
+
+    @Test
+    void rejectsAPayloadLongerThanTheFile() throws IOException {
+        Path path = dir.resolve("field.bin");
+        GridFile.write(path, 50, randomCells(50), null, p -> { });
+        patchInt(path, PAYLOAD_LENGTH_AT, Integer.MAX_VALUE);
+        IOException e = assertThrows(IOException.class, () -> GridFile.read(path, 50, p -> { }));
+        assertTrue(e.getMessage().startsWith("Corrupt"));
+    }
+
+    @Test
+    void rejectsAnEntityCountLargerThanTheFile() throws IOException {
+        Path path = dir.resolve("checkpoint.bin");
+        GridFile.write(path, 50, randomCells(50), someEntities(), p -> { });
+        // Random cells are stored raw, so the entity count follows one byte per cell
+        assertEquals(HEADER_BYTES + 50 * 50 + 4 + 3 * 13, Files.size(path));
+        patchInt(path, HEADER_BYTES + 50 * 50, Integer.MAX_VALUE / 13);
+        IOException e = assertThrows(IOException.class, () -> GridFile.read(path, 50, p -> { }));
+        assertTrue(e.getMessage().startsWith("Corrupt"));
+    }
+
+    @Test
+    void rejectsATruncatedFile() throws IOException {
+        Path path = dir.resolve("field.bin");
+        GridFile.write(path, 50, randomCells(50), null, p -> { });
+        byte[] whole = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(whole, whole.length - 100));
+        assertThrows(IOException.class, () -> GridFile.read(path, 50, p -> { }));
+    }
+
+    @Test
+    void rejectsACellStagePastFullGrowth() throws IOException {
+        Path path = dir.resolve("field.bin");
+        byte[] cells = randomCells(50);
+        cells[123] = (byte) CellStorage.pack(CellState.GROWING, 7);
+        GridFile.write(path, 50, cells, null, p -> { });
+        IOException e = assertThrows(IOException.class, () -> GridFile.read(path, 50, p -> { }));
+        assertTrue(e.getMessage().startsWith("Corrupt"));
+    }
+
+    @Test
+    void rejectsANegativeCellByteAndAStageOnAnEmptyCell() throws IOException {
+        Path path = dir.resolve("field.bin");
+        for (byte bad : new byte[] {-1, (byte) CellStorage.pack(CellState.EMPTY, 3)}) {
+            byte[] cells = new byte[50 * 50];
+            cells[7] = bad;
+            GridFile.write(path, 50, cells, null, p -> { });
+            assertThrows(IOException.class, () -> GridFile.read(path, 50, p -> { }));
+        }
+    }
+
+    @Test
+    void rejectsAnEntityOffTheField() throws IOException {
+        Path path = dir.resolve("checkpoint.bin");
+        GridFile.write(path, 50, randomCells(50),
+                List.of(new GridFile.SavedEntity(1, EntityType.RABBIT, 50, 0)), p -> { });
+        IOException e = assertThrows(IOException.class, () -> GridFile.read(path, 50, p -> { }));
+        assertTrue(e.getMessage().startsWith("Corrupt"));
+    }
+
+    private static void patchInt(Path path, int offset, int value) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        ByteBuffer.wrap(bytes).putInt(offset, value);
+        Files.write(path, bytes);
+    }
+}
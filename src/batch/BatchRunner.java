@@ -0,0 +1,277 @@
+package batch;
+
+import config.ExecutionMode;
+import config.GameConfig;
+import grid.CellState;
+import grid.CellStorage;
+import grid.Grid;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import ui.Simulation;
+
+// Headless entry point: runs independent simulations in parallel, one per combination of swept
+// parameters and seed, for a fixed simulated duration, and writes the results as CSV and JSON.
+//
+//   java -cp bin batch.BatchRunner [--size=50] [--farmers=5] [--duration=60000] [--seeds=3] [--seed=1]
+//        [--timeScale=max] [--threads=<cores>] [--out=results] [key=v1,v2,...]...
+//
+// key is any config file key, e.g. rabbitSpawnRate=0.1,0.3,0.5 dogDetectionRange=3,5,8
+public class BatchRunner {
+    private int fieldSize = 50;
+    private int farmers = 5;
+    private long durationMillis = 60_000;
+    private int seeds = 3;
+    private long firstSeed = 1;
+    // Runs use the lockstep event engine, so a seed always gives the same run, by default as fast as the CPU allows
+    private double timeScale = Double.POSITIVE_INFINITY;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private String out = "results";
+    // Swept parameters in command line order, each with the values to try
+    private final Map<String, String[]> sweep = new LinkedHashMap<>();
+
+    public static void main(String[] args) {
+        BatchRunner runner = new BatchRunner();
+        try {
+            runner.parseArguments(args);
+            runner.run();
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: batch.BatchRunner [--size=N] [--farmers=N] [--duration=ms] [--seeds=N]"
+                    + " [--seed=N] [--timeScale=X] [--threads=N] [--out=prefix] [key=v1,v2,...]...");
+            System.exit(2);
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            System.err.println("Batch run failed: " + e);
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    private void parseArguments(String[] args) {
+        Properties known = GameConfig.getInstance().toProperties();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected key=value, got '" + arg + "'");
+            }
+            String key = arg.substring(0, eq);
+            String value = arg.substring(eq + 1);
+            switch (key) {
+                case "--size":
+                    fieldSize = Integer.parseInt(value);
+                    break;
+                case "--farmers":
+                    farmers = Integer.parseInt(value);
+                    break;
+                case "--duration":
+                    durationMillis = Long.parseLong(value);
+                    break;
+                case "--seeds":
+                    seeds = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    firstSeed = Long.parseLong(value);
+                    break;
+                case "--timeScale":
+                    timeScale = value.equalsIgnoreCase("max") ? Double.POSITIVE_INFINITY : Double.parseDouble(value);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "--out":
+                    out = value;
+                    break;
+                default:
+                    if (!known.containsKey(key)) {
+                        throw new IllegalArgumentException("Unknown parameter '" + key + "'");
+                    }
+                    sweep.put(key, value.split(","));
+            }
+        }
+        if (fieldSize <= 0 || farmers < 0 || durationMillis <= 0 || seeds <= 0 || timeScale <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("Sizes, counts, duration and time scale must be positive");
+        }
+    }
+
+    private void run() throws IOException, InterruptedException, ExecutionException {
+        List<Map<String, String>> combinations = combinations();
+        int total = combinations.size() * seeds;
+        System.out.println("Running " + total + " simulations (" + combinations.size() + " parameter sets x "
+                + seeds + " seeds) on " + threads + " threads, " + durationMillis + " ms simulated each");
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "batch-runner-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger finished = new AtomicInteger();
+        List<Future<RunResult>> futures = new ArrayList<>();
+        int run = 0;
+        for (Map<String, String> parameters : combinations) {
+            for (int s = 0; s < seeds; s++) {
+                int index = run++;
+                long seed = firstSeed + s;
+                futures.add(pool.submit(() -> {
+                    RunResult result = runOne(index, seed, parameters);
+                    System.out.println("Finished run " + finished.incrementAndGet() + "/" + total);
+                    return result;
+                }));
+            }
+        }
+        List<RunResult> results = new ArrayList<>();
+        for (Future<RunResult> future : futures) {
+            results.add(future.get());
+        }
+        pool.shutdown();
+
+        writeCsv(Paths.get(out + ".csv"), results);
+        writeJson(Paths.get(out + ".json"), results);
+        System.out.println("Results written to " + out + ".csv and " + out + ".json");
+    }
+
+    // Cartesian product of the swept values; a single empty set when nothing is swept
+    private List<Map<String, String>> combinations() {
+        List<Map<String, String>> result = new ArrayList<>();
+        result.add(new LinkedHashMap<>());
+        for (Map.Entry<String, String[]> entry : sweep.entrySet()) {
+            List<Map<String, String>> next = new ArrayList<>();
+            for (Map<String, String> partial : result) {
+                for (String value : entry.getValue()) {
+                    Map<String, String> combination = new LinkedHashMap<>(partial);
+                    combination.put(entry.getKey(), value.trim());
+                    next.add(combination);
+                }
+            }
+            result = next;
+        }
+        return result;
+    }
+
+    private RunResult runOne(int run, long seed, Map<String, String> parameters) throws InterruptedException {
+        // Each simulation gets its own config, so runs never see each other's parameters
+        GameConfig config = GameConfig.getInstance().copy();
+        config.setExecutionMode(ExecutionMode.LOCKSTEP);
+        config.setSchedulerThreads(1);
+        config.setAutosaveInterval(0);
+        config.setTimeScale(timeScale);
+        Properties overrides = new Properties();
+        overrides.putAll(parameters);
+        config.apply(overrides);
+
+        Simulation simulation = new Simulation(fieldSize, farmers, config, seed);
+        simulation.setPublishSnapshots(false);
+        long start = System.nanoTime();
+        simulation.runFor(durationMillis);
+        Grid grid = simulation.getGrid();
+        // Taken while the clock stands still at the end of the run, before stopping deactivates the
+        // rabbits, so it covers the same entities as a sharded run's fingerprint
+        long fingerprint = grid.fingerprint();
+        simulation.stopSimulation();
+        long wallMillis = (System.nanoTime() - start) / 1_000_000;
+
+        byte[] cells = new byte[grid.getSize() * grid.getSize()];
+        grid.copyCells(cells);
+        int[] counts = new int[CellState.values().length];
+        for (byte cell : cells) {
+            counts[CellStorage.stateOf(cell).ordinal()]++;
+        }
+        return new RunResult(run, seed, parameters, grid.getStats(), counts[CellState.READY.ordinal()],
+                counts[CellState.GROWING.ordinal()], counts[CellState.DAMAGED.ordinal()], wallMillis,
+                fingerprint);
+    }
+
+    private void writeCsv(Path path, List<RunResult> results) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(path))) {
+            StringBuilder header = new StringBuilder("run,seed");
+            for (String key : sweep.keySet()) {
+                header.append(',').append(key);
+            }
+            for (String field : RunResult.FIELDS) {
+                header.append(',').append(field);
+            }
+            header.append(",fingerprint");
+            writer.println(header);
+            for (RunResult result : results) {
+                StringBuilder row = new StringBuilder().append(result.run).append(',').append(result.seed);
+                for (String value : result.parameters.values()) {
+                    row.append(',').append(value);
+                }
+                for (long value : result.values()) {
+                    row.append(',').append(value);
+                }
+                row.append(',').append(result.fingerprint);
+                writer.println(row);
+            }
+        }
+    }
+
+    // Every run, plus the mean of each result over the seeds of every parameter set
+    private void writeJson(Path path, List<RunResult> results) throws IOException {
+        Map<Map<String, String>, List<RunResult>> groups = new LinkedHashMap<>();
+        for (RunResult result : results) {
+            groups.computeIfAbsent(result.parameters, k -> new ArrayList<>()).add(result);
+        }
+
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(path))) {
+            writer.println("{");
+            writer.printf("  \"fieldSize\": %d,%n  \"farmers\": %d,%n  \"durationMillis\": %d,%n  \"timeScale\": %s,%n",
+                    fieldSize, farmers, durationMillis, Double.isInfinite(timeScale) ? "\"max\"" : timeScale);
+            writer.println("  \"runs\": [");
+            for (int i = 0; i < results.size(); i++) {
+                RunResult result = results.get(i);
+                StringBuilder values = new StringBuilder();
+                for (int f = 0; f < RunResult.FIELDS.length; f++) {
+                    values.append(f == 0 ? "" : ", ").append('"').append(RunResult.FIELDS[f]).append("\": ")
+                            .append(result.values()[f]);
+                }
+                writer.printf("    {\"run\": %d, \"seed\": %d, \"parameters\": %s, %s, \"fingerprint\": \"%s\"}%s%n",
+                        result.run, result.seed, toJson(result.parameters), values, result.fingerprint,
+                        i < results.size() - 1 ? "," : "");
+            }
+            writer.println("  ],");
+            writer.println("  \"summary\": [");
+            int g = 0;
+            for (Map.Entry<Map<String, String>, List<RunResult>> group : groups.entrySet()) {
+                List<RunResult> runs = group.getValue();
+                StringBuilder means = new StringBuilder();
+                for (int f = 0; f < RunResult.FIELDS.length; f++) {
+                    double sum = 0;
+                    for (RunResult result : runs) {
+                        sum += result.values()[f];
+                    }
+                    means.append(f == 0 ? "" : ", ").append('"').append(RunResult.FIELDS[f]).append("\": ")
+                            .append(String.format("%.2f", sum / runs.size()));
+                }
+                writer.printf("    {\"parameters\": %s, \"runs\": %d, \"mean\": {%s}}%s%n", toJson(group.getKey()),
+                        runs.size(), means, ++g < groups.size() ? "," : "");
+            }
+            writer.println("  ]");
+            writer.println("}");
+        }
+    }
+
+    // Parameter values are numbers or enum names, so they never need escaping
+    private static String toJson(Map<String, String> parameters) {
+        StringBuilder json = new StringBuilder("{");
+        for (Map.Entry<String, String> entry : parameters.entrySet()) {
+            if (json.length() > 1) {
+                json.append(", ");
+            }
+            json.append('"').append(entry.getKey()).append("\": \"").append(entry.getValue()).append('"');
+        }
+        return json.append('}').toString();
+    }
+}
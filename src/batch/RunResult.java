@@ -0,0 +1,37 @@
+package batch;
+
+import grid.FarmStats;
+import java.util.Map;
+
+// Outcome of one headless run
+class RunResult {
+    // Column names, in the order of values()
+    static final String[] FIELDS = {
+            "planted", "ripened", "eaten", "repaired", "rabbitsSpawned", "rabbitsCaught",
+            "readyAtEnd", "growingAtEnd", "damagedAtEnd", "wallMillis"
+    };
+
+    final int run;
+    final long seed;
+    final Map<String, String> parameters;
+    // Grid.fingerprint() at the end, in hex; equal for runs that ended in the same state
+    final String fingerprint;
+    private final long[] values;
+
+    RunResult(int run, long seed, Map<String, String> parameters, FarmStats stats,
+              int readyAtEnd, int growingAtEnd, int damagedAtEnd, long wallMillis, long fingerprint) {
+        this.run = run;
+        this.seed = seed;
+        this.parameters = parameters;
+        this.fingerprint = String.format("%08x", fingerprint);
+        this.values = new long[] {
+                stats.getPlanted(), stats.getRipened(), stats.getEaten(), stats.getRepaired(),
+                stats.getRabbitsSpawned(), stats.getRabbitsCaught(),
+                readyAtEnd, growingAtEnd, damagedAtEnd, wallMillis
+        };
+    }
+
+    long[] values() {
+        return values;
+    }
+}
@@ -0,0 +1,7 @@
+package config;
+
+// Which backend the grid uses to store cells
+public enum CellStorageType {
+    OBJECT,  // one synchronized Cell object per square (original layout)
+    PACKED   // one byte per square updated with CAS, no monitors
+}
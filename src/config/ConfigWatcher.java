@@ -0,0 +1,60 @@
+package config;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+// Watches the config directory and reloads the config when its file is created or changed
+class ConfigWatcher {
+    // Editors often write a file in several steps; wait for them to finish before reading it
+    private static final long SETTLE_MILLIS = 200;
+
+    private final GameConfig config;
+    private final String fileName;
+    private final WatchService watchService;
+
+    ConfigWatcher(GameConfig config, Path directory, String fileName) throws IOException {
+        this.config = config;
+        this.fileName = fileName;
+        Files.createDirectories(directory);
+        this.watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        Thread thread = new Thread(this::watch, "config-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object context = event.context();
+                    if (context instanceof Path && ((Path) context).getFileName().toString().equals(fileName)) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed) {
+                    Thread.sleep(SETTLE_MILLIS);
+                    // One reload covers every event that arrived while settling
+                    WatchKey pending = watchService.poll();
+                    if (pending != null) {
+                        pending.pollEvents();
+                        pending.reset();
+                    }
+                    config.reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // JVM is shutting down
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package config;
+
+// How entity behaviour is scheduled onto threads
+public enum ExecutionMode {
+    THREAD,   // one platform thread per entity (original behaviour)
+    VIRTUAL,  // one virtual thread per entity
+    POOLED,   // entity steps scheduled on a bounded pool of platform threads
+    EVENT,    // entity steps as events on one thread, against a virtual clock paced by timeScale
+    WHEEL,    // entity wake-ups on a hashed timing wheel, steps run on a bounded pool
+    LOCKSTEP, // EVENT in fixed ticks: repeating actions first, then entity steps in id order
+    REGION    // field split into tiles, each with its own cells and a worker stepping the entities in it
+}
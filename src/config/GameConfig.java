@@ -2,59 +2,254 @@ package config;
 
 import java.io.*;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
+// Game parameters. Values live in an immutable Snapshot published through one atomic reference:
+// getters are a single lock-free read, and every change (a setter, apply(), a reload of the file)
+// swaps in a complete new snapshot, so readers never see a half-applied update.
 public class GameConfig {
-    private static GameConfig instance;
-    private static final String CONFIG_FILE = "config/game.properties";
-    
-    private int carrotGrowthTime = 1000;
-    private int farmerRepairTime = 3000;
-    private int farmerPlantTime = 2000;
-    private double rabbitSpawnRate = 0.3;
-    private int dogDetectionRange = 5;
-    private int cellSize = 40;
-    private int refreshRate = 100;
-    
+    private static final String CONFIG_DIRECTORY = "config";
+    private static final String CONFIG_FILE_NAME = "game.properties";
+    private static final String CONFIG_FILE = CONFIG_DIRECTORY + "/" + CONFIG_FILE_NAME;
+
+    private final AtomicReference<Snapshot> current;
+    private ConfigWatcher watcher;
+
+    // One set of parameter values, never changed once published
+    public static final class Snapshot implements Cloneable {
+        private int carrotGrowthTime = 1000;
+        private int farmerRepairTime = 3000;
+        private int farmerPlantTime = 2000;
+        private double rabbitSpawnRate = 0.3;
+        private int dogDetectionRange = 5;
+        // Initial zoom level of the field view in pixels; changing it while running re-zooms the view
+        private int cellSize = 40;
+        // Milliseconds between screen refreshes and snapshot publishes
+        private int refreshRate = 100;
+        private ExecutionMode executionMode = ExecutionMode.POOLED;
+        private int schedulerThreads = Runtime.getRuntime().availableProcessors();
+        // Resolution of the WHEEL executor's timing wheel in real ms; wake-ups are rounded up to it
+        private int timerTickMs = 10;
+        // Length of a LOCKSTEP tick in simulated ms; every wake-up is rounded up to a tick boundary
+        private int lockstepTickMs = 100;
+        // Tiles per side of the field in REGION mode, each stepped by its own worker; 0 picks enough
+        // tiles for schedulerThreads workers
+        private int regionsPerSide = 0;
+        private CellStorageType cellStorage = CellStorageType.PACKED;
+        private GrowthMode growthMode = GrowthMode.SERIAL;
+        // Seconds between autosave checkpoints, 0 turns autosave off
+        private int autosaveInterval = 30;
+        private String autosaveDirectory = "autosave";
+        // Simulated milliseconds per real millisecond; entity and growth delays are divided by it.
+        // Infinite ("max") runs the EVENT engine as fast as the CPU allows.
+        private double timeScale = 1.0;
+
+        private Snapshot() {
+        }
+
+        // Unpublished copy for building the next snapshot
+        private Snapshot copy() {
+            try {
+                return (Snapshot) clone();
+            } catch (CloneNotSupportedException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        public int getCarrotGrowthTime() { return carrotGrowthTime; }
+        public int getFarmerRepairTime() { return farmerRepairTime; }
+        public int getFarmerPlantTime() { return farmerPlantTime; }
+        public double getRabbitSpawnRate() { return rabbitSpawnRate; }
+        public int getDogDetectionRange() { return dogDetectionRange; }
+        public int getCellSize() { return cellSize; }
+        public int getRefreshRate() { return refreshRate; }
+        public ExecutionMode getExecutionMode() { return executionMode; }
+        public int getSchedulerThreads() { return schedulerThreads; }
+        public int getTimerTickMs() { return timerTickMs; }
+        public int getLockstepTickMs() { return lockstepTickMs; }
+        public int getRegionsPerSide() { return regionsPerSide; }
+        public CellStorageType getCellStorage() { return cellStorage; }
+        public GrowthMode getGrowthMode() { return growthMode; }
+        public int getAutosaveInterval() { return autosaveInterval; }
+        public String getAutosaveDirectory() { return autosaveDirectory; }
+        public double getTimeScale() { return timeScale; }
+
+        // Real time to wait for a simulated delay
+        public long toRealMillis(long simulatedMillis) {
+            return Math.round(simulatedMillis / timeScale);
+        }
+    }
+
+    // Initialised on first use by the JVM's class loading, which is thread-safe
+    private static final class Holder {
+        static final GameConfig INSTANCE = new GameConfig();
+    }
+
     private GameConfig() {
+        this.current = new AtomicReference<>(new Snapshot());
         loadFromFile();
     }
-    
+
+    private GameConfig(GameConfig other) {
+        this.current = new AtomicReference<>(other.snapshot());
+    }
+
     public static GameConfig getInstance() {
-        if (instance == null) {
-            instance = new GameConfig();
+        return Holder.INSTANCE;
+    }
+
+    // Independent copy, e.g. for one of several simulations running side by side
+    public GameConfig copy() {
+        return new GameConfig(this);
+    }
+
+    // Current values; read several parameters from one snapshot to get a consistent set
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    // Build the next snapshot from the current one and publish it, retrying if another change won the race
+    private void update(Consumer<Snapshot> change) {
+        while (true) {
+            Snapshot previous = current.get();
+            Snapshot next = previous.copy();
+            change.accept(next);
+            if (current.compareAndSet(previous, next)) {
+                return;
+            }
         }
-        return instance;
     }
-    
+
     private void loadFromFile() {
         Properties props = new Properties();
         try (FileInputStream fis = new FileInputStream(CONFIG_FILE)) {
             props.load(fis);
-            carrotGrowthTime = Integer.parseInt(props.getProperty("carrotGrowthTime", "1000"));
-            farmerRepairTime = Integer.parseInt(props.getProperty("farmerRepairTime", "3000"));
-            farmerPlantTime = Integer.parseInt(props.getProperty("farmerPlantTime", "2000"));
-            rabbitSpawnRate = Double.parseDouble(props.getProperty("rabbitSpawnRate", "0.3"));
-            dogDetectionRange = Integer.parseInt(props.getProperty("dogDetectionRange", "5"));
-            cellSize = Integer.parseInt(props.getProperty("cellSize", "40"));
-            refreshRate = Integer.parseInt(props.getProperty("refreshRate", "100"));
+            apply(props);
             System.out.println("Config loaded from file");
         } catch (IOException e) {
             System.out.println("Config file not found, using defaults");
         }
     }
-    
-    public void saveToFile() {
+
+    // Re-read the config file and swap its values in; a file that doesn't parse leaves everything as it was
+    public void reload() {
         Properties props = new Properties();
-        props.setProperty("carrotGrowthTime", String.valueOf(carrotGrowthTime));
-        props.setProperty("farmerRepairTime", String.valueOf(farmerRepairTime));
-        props.setProperty("farmerPlantTime", String.valueOf(farmerPlantTime));
-        props.setProperty("rabbitSpawnRate", String.valueOf(rabbitSpawnRate));
-        props.setProperty("dogDetectionRange", String.valueOf(dogDetectionRange));
-        props.setProperty("cellSize", String.valueOf(cellSize));
-        props.setProperty("refreshRate", String.valueOf(refreshRate));
-        
+        try (FileInputStream fis = new FileInputStream(CONFIG_FILE)) {
+            props.load(fis);
+            apply(props);
+            System.out.println("Config reloaded from file");
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Failed to reload config: " + e.getMessage());
+        }
+    }
+
+    // Reload whenever config/game.properties changes, until the JVM exits; calling it again does nothing
+    public synchronized void watchFile() {
+        if (watcher == null) {
+            try {
+                watcher = new ConfigWatcher(this, new File(CONFIG_DIRECTORY).toPath(), CONFIG_FILE_NAME);
+            } catch (IOException e) {
+                System.err.println("Cannot watch config file: " + e.getMessage());
+            }
+        }
+    }
+
+    // Override the parameters present in props as one change; missing keys keep their current value.
+    // A value that doesn't parse throws before anything is published; one outside the range its setter
+    // accepts keeps the current value.
+    public void apply(Properties props) {
+        update(s -> {
+            s.carrotGrowthTime = parseInt(props, "carrotGrowthTime", s.carrotGrowthTime, 1);
+            s.farmerRepairTime = parseInt(props, "farmerRepairTime", s.farmerRepairTime, 1);
+            s.farmerPlantTime = parseInt(props, "farmerPlantTime", s.farmerPlantTime, 1);
+            s.rabbitSpawnRate = parseRate(props.getProperty("rabbitSpawnRate"), s.rabbitSpawnRate);
+            s.dogDetectionRange = parseInt(props, "dogDetectionRange", s.dogDetectionRange, 1);
+            s.cellSize = parseInt(props, "cellSize", s.cellSize, 1);
+            s.refreshRate = parseInt(props, "refreshRate", s.refreshRate, 1);
+            s.executionMode = parseExecutionMode(props.getProperty("executionMode", s.executionMode.name()), s.executionMode);
+            s.schedulerThreads = parseInt(props, "schedulerThreads", s.schedulerThreads, 1);
+            s.timerTickMs = parseInt(props, "timerTickMs", s.timerTickMs, 1);
+            s.lockstepTickMs = parseInt(props, "lockstepTickMs", s.lockstepTickMs, 1);
+            s.regionsPerSide = parseInt(props, "regionsPerSide", s.regionsPerSide, 0);
+            s.cellStorage = parseCellStorage(props.getProperty("cellStorage", s.cellStorage.name()), s.cellStorage);
+            s.growthMode = parseGrowthMode(props.getProperty("growthMode", s.growthMode.name()), s.growthMode);
+            s.autosaveInterval = parseInt(props, "autosaveInterval", s.autosaveInterval, 0);
+            s.autosaveDirectory = props.getProperty("autosaveDirectory", s.autosaveDirectory);
+            s.timeScale = parseTimeScale(props.getProperty("timeScale", String.valueOf(s.timeScale)), s.timeScale);
+        });
+    }
+
+    // The key's value, or current if it is missing or below min
+    private static int parseInt(Properties props, String key, int current, int min) {
+        String value = props.getProperty(key);
+        if (value == null) {
+            return current;
+        }
+        int parsed = Integer.parseInt(value.trim());
+        if (parsed < min) {
+            System.err.println(key + " must be at least " + min + ", using " + current);
+            return current;
+        }
+        return parsed;
+    }
+
+    private static double parseRate(String value, double current) {
+        if (value == null) {
+            return current;
+        }
+        double rate = Double.parseDouble(value);
+        if (!(rate >= 0.0 && rate <= 1.0)) {
+            System.err.println("Rabbit spawn rate must be between 0 and 1, using " + current);
+            return current;
+        }
+        return rate;
+    }
+
+    private static ExecutionMode parseExecutionMode(String value, ExecutionMode current) {
         try {
-            new File("config").mkdirs();
+            return ExecutionMode.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown execution mode '" + value + "', using " + current);
+            return current;
+        }
+    }
+
+    private static CellStorageType parseCellStorage(String value, CellStorageType current) {
+        try {
+            return CellStorageType.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown cell storage '" + value + "', using " + current);
+            return current;
+        }
+    }
+
+    private static double parseTimeScale(String value, double current) {
+        if (value.trim().equalsIgnoreCase("max")) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double scale = Double.parseDouble(value);
+        if (scale <= 0) {
+            System.err.println("Time scale must be positive, using " + current);
+            return current;
+        }
+        return scale;
+    }
+
+    private static GrowthMode parseGrowthMode(String value, GrowthMode current) {
+        try {
+            return GrowthMode.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown growth mode '" + value + "', using " + current);
+            return current;
+        }
+    }
+
+    public void saveToFile() {
+        Properties props = toProperties();
+
+        try {
+            new File(CONFIG_DIRECTORY).mkdirs();
             try (FileOutputStream fos = new FileOutputStream(CONFIG_FILE)) {
                 props.store(fos, "Game Configuration");
                 System.out.println("Config saved to file");
@@ -63,34 +258,120 @@ public class GameConfig {
             System.err.println("Failed to save config: " + e.getMessage());
         }
     }
-    
-    // Getters
-    public int getCarrotGrowthTime() { return carrotGrowthTime; }
-    public int getFarmerRepairTime() { return farmerRepairTime; }
-    public int getFarmerPlantTime() { return farmerPlantTime; }
-    public double getRabbitSpawnRate() { return rabbitSpawnRate; }
-    public int getDogDetectionRange() { return dogDetectionRange; }
-    public int getCellSize() { return cellSize; }
-    public int getRefreshRate() { return refreshRate; }
-    
-    // Setters with validation
+
+    // Every parameter under the key used in the config file
+    public Properties toProperties() {
+        Snapshot s = snapshot();
+        Properties props = new Properties();
+        props.setProperty("carrotGrowthTime", String.valueOf(s.carrotGrowthTime));
+        props.setProperty("farmerRepairTime", String.valueOf(s.farmerRepairTime));
+        props.setProperty("farmerPlantTime", String.valueOf(s.farmerPlantTime));
+        props.setProperty("rabbitSpawnRate", String.valueOf(s.rabbitSpawnRate));
+        props.setProperty("dogDetectionRange", String.valueOf(s.dogDetectionRange));
+        props.setProperty("cellSize", String.valueOf(s.cellSize));
+        props.setProperty("refreshRate", String.valueOf(s.refreshRate));
+        props.setProperty("executionMode", s.executionMode.name());
+        props.setProperty("schedulerThreads", String.valueOf(s.schedulerThreads));
+        props.setProperty("timerTickMs", String.valueOf(s.timerTickMs));
+        props.setProperty("lockstepTickMs", String.valueOf(s.lockstepTickMs));
+        props.setProperty("regionsPerSide", String.valueOf(s.regionsPerSide));
+        props.setProperty("cellStorage", s.cellStorage.name());
+        props.setProperty("growthMode", s.growthMode.name());
+        props.setProperty("autosaveInterval", String.valueOf(s.autosaveInterval));
+        props.setProperty("autosaveDirectory", s.autosaveDirectory);
+        props.setProperty("timeScale", Double.isInfinite(s.timeScale) ? "max" : String.valueOf(s.timeScale));
+        return props;
+    }
+
+    // Getters, each a read of the current snapshot
+    public int getCarrotGrowthTime() { return snapshot().carrotGrowthTime; }
+    public int getFarmerRepairTime() { return snapshot().farmerRepairTime; }
+    public int getFarmerPlantTime() { return snapshot().farmerPlantTime; }
+    public double getRabbitSpawnRate() { return snapshot().rabbitSpawnRate; }
+    public int getDogDetectionRange() { return snapshot().dogDetectionRange; }
+    public int getCellSize() { return snapshot().cellSize; }
+    public int getRefreshRate() { return snapshot().refreshRate; }
+    public ExecutionMode getExecutionMode() { return snapshot().executionMode; }
+    public int getSchedulerThreads() { return snapshot().schedulerThreads; }
+    public int getTimerTickMs() { return snapshot().timerTickMs; }
+    public int getLockstepTickMs() { return snapshot().lockstepTickMs; }
+    public int getRegionsPerSide() { return snapshot().regionsPerSide; }
+    public CellStorageType getCellStorage() { return snapshot().cellStorage; }
+    public GrowthMode getGrowthMode() { return snapshot().growthMode; }
+    public int getAutosaveInterval() { return snapshot().autosaveInterval; }
+    public String getAutosaveDirectory() { return snapshot().autosaveDirectory; }
+    public double getTimeScale() { return snapshot().timeScale; }
+
+    // Real time to wait for a simulated delay
+    public long toRealMillis(long simulatedMillis) {
+        return snapshot().toRealMillis(simulatedMillis);
+    }
+
+    // Setters with validation; each publishes a new snapshot
     public void setCarrotGrowthTime(int time) {
-        if (time > 0) carrotGrowthTime = time;
+        if (time > 0) update(s -> s.carrotGrowthTime = time);
     }
-    
+
     public void setFarmerRepairTime(int time) {
-        if (time > 0) farmerRepairTime = time;
+        if (time > 0) update(s -> s.farmerRepairTime = time);
     }
-    
+
     public void setFarmerPlantTime(int time) {
-        if (time > 0) farmerPlantTime = time;
+        if (time > 0) update(s -> s.farmerPlantTime = time);
     }
-    
+
     public void setRabbitSpawnRate(double rate) {
-        if (rate >= 0.0 && rate <= 1.0) rabbitSpawnRate = rate;
+        if (rate >= 0.0 && rate <= 1.0) update(s -> s.rabbitSpawnRate = rate);
     }
-    
+
     public void setDogDetectionRange(int range) {
-        if (range > 0) dogDetectionRange = range;
+        if (range > 0) update(s -> s.dogDetectionRange = range);
+    }
+
+    public void setCellSize(int size) {
+        if (size > 0) update(s -> s.cellSize = size);
+    }
+
+    public void setRefreshRate(int millis) {
+        if (millis > 0) update(s -> s.refreshRate = millis);
+    }
+
+    public void setExecutionMode(ExecutionMode mode) {
+        if (mode != null) update(s -> s.executionMode = mode);
+    }
+
+    public void setSchedulerThreads(int threads) {
+        if (threads > 0) update(s -> s.schedulerThreads = threads);
+    }
+
+    public void setTimerTickMs(int millis) {
+        if (millis > 0) update(s -> s.timerTickMs = millis);
+    }
+
+    public void setLockstepTickMs(int millis) {
+        if (millis > 0) update(s -> s.lockstepTickMs = millis);
+    }
+
+    // 0 picks the tile count from schedulerThreads
+    public void setRegionsPerSide(int regions) {
+        if (regions >= 0) update(s -> s.regionsPerSide = regions);
+    }
+
+    public void setCellStorage(CellStorageType type) {
+        if (type != null) update(s -> s.cellStorage = type);
+    }
+
+    public void setAutosaveInterval(int seconds) {
+        if (seconds >= 0) update(s -> s.autosaveInterval = seconds);
+    }
+
+    // Read before every delay, so it may be changed while the game runs
+    public void setTimeScale(double scale) {
+        if (scale > 0) update(s -> s.timeScale = scale);
+    }
+
+    // Read by the growth thread on every tick, so it may be switched while the game runs
+    public void setGrowthMode(GrowthMode mode) {
+        if (mode != null) update(s -> s.growthMode = mode);
     }
-}
\ No newline at end of file
+}
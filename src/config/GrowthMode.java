@@ -0,0 +1,7 @@
+package config;
+
+// How a growth tick is applied across the grid
+public enum GrowthMode {
+    SERIAL,   // one thread walks every growing cell
+    PARALLEL  // row stripes are advanced concurrently on a ForkJoin pool
+}
@@ -1,25 +1,45 @@
 package core;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 public abstract class GameObject {
-    protected int x;
-    protected int y;
-    protected volatile boolean isActive;
+    // x in the high half, y in the low half: other threads read the position while the owner moves, and
+    // one volatile value means they never see a new x with an old y
+    private volatile long position;
+    private final AtomicBoolean active = new AtomicBoolean(true);
 
     public GameObject(int x, int y) {
-        this.x = x;
-        this.y = y;
-        this.isActive = true;
+        setPosition(x, y);
     }
 
+    // Both coordinates from the same move
     public int[] getPosition() {
-        return new int[]{x, y};
+        long p = position;
+        return new int[]{(int) (p >> 32), (int) p};
+    }
+
+    public int getX() {
+        return (int) (position >> 32);
+    }
+
+    public int getY() {
+        return (int) position;
+    }
+
+    protected void setPosition(int x, int y) {
+        position = (long) x << 32 | (y & 0xFFFFFFFFL);
     }
 
     public boolean isActive() {
-        return isActive;
+        return active.get();
     }
 
     public void setActive(boolean active) {
-        isActive = active;
+        this.active.set(active);
+    }
+
+    // Switch from active to inactive; true only for the one caller that actually did it
+    protected boolean deactivate() {
+        return active.compareAndSet(true, false);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,60 @@
+package engine;
+
+import config.GameConfig;
+import entities.Entity;
+import grid.RegionLayout;
+import java.util.function.LongSupplier;
+
+// Runs entity behaviour according to the configured execution mode
+public interface EntityExecutor {
+    // Start driving the entity until it finishes or the executor shuts down
+    void submit(Entity entity);
+
+    // Begin running everything submitted so far; executors that start work on submit ignore this
+    default void start() {
+    }
+
+    // Run action every intervalMillis simulated ms (read again for every wait) until stopRepeating()
+    void scheduleRepeating(String name, LongSupplier intervalMillis, Runnable action);
+
+    // Stop every repeating action and wait for one that is running to finish
+    void stopRepeating();
+
+    // Block the caller until the given simulated time has passed on this executor's clock; starts it if needed
+    void awaitSimulated(long millis) throws InterruptedException;
+
+    // Threads currently driving entities
+    int getThreadCount();
+
+    // Stop all entities and wait briefly for them to finish
+    void shutdown();
+
+    // Create an executor for the config's execution mode
+    static EntityExecutor create(GameConfig config) {
+        return create(config, null);
+    }
+
+    // Same, with the tiles REGION mode assigns workers to; without them REGION falls back to POOLED
+    static EntityExecutor create(GameConfig config, RegionLayout regions) {
+        switch (config.getExecutionMode()) {
+            case THREAD:
+                return new ThreadedEntityExecutor(Thread::new, config);
+            case VIRTUAL:
+                return ThreadedEntityExecutor.virtual(config);
+            case EVENT:
+            case LOCKSTEP:
+                return new EventLoopExecutor(config);
+            case WHEEL:
+                return new TimingWheelExecutor(config);
+            case REGION:
+                if (regions != null) {
+                    return new RegionExecutor(config, regions);
+                }
+                System.out.println("Region mode needs the grid's layout, using pooled scheduler");
+                return new PooledEntityExecutor(config);
+            case POOLED:
+            default:
+                return new PooledEntityExecutor(config);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package engine;
+
+import config.ExecutionMode;
+import config.GameConfig;
+import entities.Entity;
+import java.util.PriorityQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+// Discrete-event engine: entity steps and repeating actions are events in a priority queue, run one at a
+// time on a single thread against a virtual clock. Delays cost no real time beyond the pacing that keeps
+// the clock at timeScale times real time; an infinite time scale runs events as fast as the CPU allows.
+// In LOCKSTEP mode events are rounded up to tick boundaries, and a tick runs repeating actions first,
+// then entity steps by entity id, so the order never depends on when an event happened to be scheduled.
+public class EventLoopExecutor implements EntityExecutor {
+    // Longest pacing wait, so a changed time scale is picked up quickly
+    private static final long MAX_WAIT_NANOS = 50_000_000;
+    // LOCKSTEP order of repeating actions, ahead of every entity
+    private static final long REPEATING_ORDER = Long.MIN_VALUE;
+
+    private final GameConfig config;
+    private final boolean lockstep;
+    private final long tick;
+    private final PriorityQueue<Event> queue = new PriorityQueue<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    // Signalled when an event is added and whenever the clock moves
+    private final Condition changed = lock.newCondition();
+    private final Thread thread;
+    private volatile boolean running = true;
+    private boolean started;
+    private volatile boolean repeating = true;
+    private long sequence;
+    // Virtual time in ms since the executor started
+    private volatile long now;
+    // Set by awaitSimulated(): the clock stops here, after every event due by then, until the next call
+    private long holdAt = -1;
+    private boolean held;
+    // Pacing reference: virtual time anchorTime corresponds to real time anchorNanos at anchorScale
+    private long anchorTime;
+    private long anchorNanos;
+    private double anchorScale;
+
+    public EventLoopExecutor(GameConfig config) {
+        this.config = config;
+        this.lockstep = config.getExecutionMode() == ExecutionMode.LOCKSTEP;
+        this.tick = lockstep ? config.getLockstepTickMs() : 1;
+        this.anchorNanos = System.nanoTime();
+        this.anchorScale = config.getTimeScale();
+        this.thread = new Thread(this::loop, "event-loop");
+        thread.setDaemon(true);
+    }
+
+    // Nothing runs before this, so the initial entities all get scheduled at time 0 first
+    @Override
+    public void start() {
+        lock.lock();
+        try {
+            if (!started) {
+                started = true;
+                anchorNanos = System.nanoTime();
+                thread.start();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Event implements Comparable<Event> {
+        final long time;
+        // Events due at the same time run by order (always 0 outside LOCKSTEP), then as scheduled
+        final long order;
+        final long sequence;
+        final Runnable action;
+
+        Event(long time, long order, long sequence, Runnable action) {
+            this.time = time;
+            this.order = order;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            int byTime = Long.compare(time, other.time);
+            if (byTime != 0) {
+                return byTime;
+            }
+            int byOrder = Long.compare(order, other.order);
+            return byOrder != 0 ? byOrder : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    // Run action once the virtual clock has advanced by delay ms
+    private void schedule(long delay, Runnable action) {
+        schedule(delay, 0, action);
+    }
+
+    private void schedule(long delay, long order, Runnable action) {
+        lock.lock();
+        try {
+            long time = now + Math.max(0, delay);
+            if (lockstep) {
+                time = (time + tick - 1) / tick * tick;
+            }
+            queue.add(new Event(time, lockstep ? order : 0, sequence++, action));
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Current virtual time in ms
+    public long now() {
+        return now;
+    }
+
+    @Override
+    public void submit(Entity entity) {
+        schedule(0, entity.getId(), new StepEvent(entity));
+    }
+
+    // Same behaviour as the pooled executor's step task, with simulated delays
+    private class StepEvent implements Runnable {
+        private final Entity entity;
+
+        StepEvent(Entity entity) {
+            this.entity = entity;
+        }
+
+        @Override
+        public void run() {
+            if (!entity.isRunning()) {
+                return;
+            }
+            long delay = entity.performStep();
+            if (delay != Entity.DONE && entity.isRunning()) {
+                schedule(delay, entity.getId(), this);
+            }
+        }
+    }
+
+    @Override
+    public void scheduleRepeating(String name, LongSupplier intervalMillis, Runnable action) {
+        schedule(intervalMillis.getAsLong(), REPEATING_ORDER, new Runnable() {
+            @Override
+            public void run() {
+                if (repeating) {
+                    action.run();
+                    schedule(intervalMillis.getAsLong(), REPEATING_ORDER, this);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void stopRepeating() {
+        lock.lock();
+        try {
+            repeating = false;
+            // A held clock runs nothing, so no repeating action can be in progress
+            if (held || Thread.currentThread() == thread || !thread.isAlive()) {
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        // Events run one at a time, so once this one runs any repeating action in progress has finished
+        CountDownLatch passed = new CountDownLatch(1);
+        schedule(0, passed::countDown);
+        try {
+            passed.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Returns with the clock held exactly at the target, so what the caller then sees (and a following
+    // stop) doesn't depend on how far the loop got meanwhile; the next call releases it
+    @Override
+    public void awaitSimulated(long millis) throws InterruptedException {
+        lock.lock();
+        try {
+            long target = now + millis;
+            holdAt = target;
+            if (held) {
+                // Pace from here on, rather than catching up on the real time spent held
+                held = false;
+                anchorTime = now;
+                anchorNanos = System.nanoTime();
+            }
+            changed.signalAll();
+            start();
+            while (running && !(held && now >= target)) {
+                changed.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void loop() {
+        while (running) {
+            Event event;
+            lock.lock();
+            try {
+                event = nextDueEvent();
+                if (event == null) {
+                    continue;
+                }
+                now = event.time;
+                held = false;
+                changed.signalAll();
+            } catch (InterruptedException e) {
+                break;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                event.action.run();
+            } catch (RuntimeException e) {
+                System.err.println("Event failed at " + now + " ms: " + e);
+            }
+        }
+    }
+
+    // Wait, holding the lock, until the head event is due by the pacing; null if woken early to re-check
+    private Event nextDueEvent() throws InterruptedException {
+        if (holdAt >= 0 && (queue.isEmpty() || queue.peek().time > holdAt)) {
+            if (!held) {
+                held = true;
+                now = Math.max(now, holdAt);
+                changed.signalAll();
+            }
+            changed.await();
+            return null;
+        }
+        if (queue.isEmpty()) {
+            changed.await();
+            return null;
+        }
+        Event head = queue.peek();
+        double scale = config.getTimeScale();
+        if (scale != anchorScale) {
+            // Speed changed: keep the clock continuous and pace from here on at the new rate
+            anchorTime = now;
+            anchorNanos = System.nanoTime();
+            anchorScale = scale;
+        }
+        if (!Double.isInfinite(scale)) {
+            long dueNanos = anchorNanos + (long) ((head.time - anchorTime) / scale * 1_000_000);
+            long waitNanos = dueNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                // An event scheduled meanwhile may be due earlier, so wake up on changes too
+                changed.awaitNanos(Math.min(waitNanos, MAX_WAIT_NANOS));
+                return null;
+            }
+        }
+        return queue.poll();
+    }
+
+    @Override
+    public int getThreadCount() {
+        return thread.isAlive() ? 1 : 0;
+    }
+
+    @Override
+    public void shutdown() {
+        lock.lock();
+        try {
+            running = false;
+            queue.clear();
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        thread.interrupt();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package engine;
+
+import config.GameConfig;
+import entities.Entity;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Schedules entity steps on a bounded pool, so thread count stays flat as the population grows
+public class PooledEntityExecutor extends RealTimeExecutor {
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    public PooledEntityExecutor(GameConfig config) {
+        super(config);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.scheduler = new ScheduledThreadPoolExecutor(Math.max(1, config.getSchedulerThreads()), r -> {
+            Thread thread = new Thread(r, "entity-pool-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    @Override
+    public void submit(Entity entity) {
+        schedule(new StepTask(entity), 0);
+    }
+
+    private void schedule(StepTask task, long delay) {
+        try {
+            scheduler.schedule(task, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Executor is shutting down, the entity simply stops
+        }
+    }
+
+    @Override
+    public int getThreadCount() {
+        return scheduler.getPoolSize();
+    }
+
+    @Override
+    public void shutdown() {
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Runs one step and reschedules itself after the delay the entity asked for
+    private class StepTask implements Runnable {
+        private final Entity entity;
+
+        StepTask(Entity entity) {
+            this.entity = entity;
+        }
+
+        @Override
+        public void run() {
+            if (!entity.isRunning()) {
+                return;
+            }
+            long delay = entity.performStep();
+            if (delay != Entity.DONE && entity.isRunning()) {
+                schedule(this, config.toRealMillis(delay));
+            }
+        }
+    }
+}
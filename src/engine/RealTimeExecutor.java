@@ -0,0 +1,54 @@
+package engine;
+
+import config.GameConfig;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+
+// Base for executors that wait out delays in real time, scaled by the config's time scale.
+// Repeating actions get a thread of their own that sleeps between runs.
+abstract class RealTimeExecutor implements EntityExecutor {
+    protected final GameConfig config;
+    private final List<Thread> repeating = new CopyOnWriteArrayList<>();
+
+    RealTimeExecutor(GameConfig config) {
+        this.config = config;
+    }
+
+    @Override
+    public void scheduleRepeating(String name, LongSupplier intervalMillis, Runnable action) {
+        Thread thread = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Thread.sleep(config.toRealMillis(intervalMillis.getAsLong()));
+                } catch (InterruptedException e) {
+                    break;
+                }
+                action.run();
+            }
+        }, name);
+        thread.setDaemon(true);
+        repeating.add(thread);
+        thread.start();
+    }
+
+    @Override
+    public void stopRepeating() {
+        for (Thread thread : repeating) {
+            thread.interrupt();
+        }
+        for (Thread thread : repeating) {
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        repeating.clear();
+    }
+
+    @Override
+    public void awaitSimulated(long millis) throws InterruptedException {
+        Thread.sleep(config.toRealMillis(millis));
+    }
+}
@@ -0,0 +1,157 @@
+package engine;
+
+import config.GameConfig;
+import entities.Entity;
+import grid.RegionLayout;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import metrics.Counter;
+import metrics.MetricsRegistry;
+
+// One worker thread per tile of the field. A worker keeps the entities standing in its tile on a heap of
+// its own and steps them when due; an entity that walks over a border is handed to the neighbouring
+// tile's worker through a queue kept for that direction. Workers share no scheduler queue, so on large
+// fields throughput grows with the number of cores instead of queueing on one lock.
+public class RegionExecutor extends RealTimeExecutor {
+    private static final Counter HANDOFFS = MetricsRegistry.getInstance().counter("regions.handoffs");
+
+    private final RegionLayout layout;
+    private final Region[] regions;
+    private volatile boolean stopped;
+
+    public RegionExecutor(GameConfig config, RegionLayout layout) {
+        super(config);
+        this.layout = layout;
+        this.regions = new Region[layout.getRegionCount()];
+        for (int i = 0; i < regions.length; i++) {
+            regions[i] = new Region(i);
+        }
+        for (Region region : regions) {
+            region.thread.start();
+        }
+    }
+
+    @Override
+    public void submit(Entity entity) {
+        regions[layout.regionOf(entity.getX(), entity.getY())]
+                .handOff(RegionLayout.EXTERNAL_SLOT, new Step(entity, System.nanoTime()));
+    }
+
+    @Override
+    public int getThreadCount() {
+        return regions.length;
+    }
+
+    @Override
+    public void shutdown() {
+        stopped = true;
+        for (Region region : regions) {
+            LockSupport.unpark(region.thread);
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        for (Region region : regions) {
+            try {
+                region.thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // An entity and when its next step is due; moves between workers with the entity
+    private static final class Step {
+        final Entity entity;
+        long dueNanos;
+
+        Step(Entity entity, long dueNanos) {
+            this.entity = entity;
+            this.dueNanos = dueNanos;
+        }
+    }
+
+    private final class Region implements Runnable {
+        private final int index;
+        private final Thread thread;
+        // Only touched by this region's thread
+        private final PriorityQueue<Step> due = new PriorityQueue<>(Comparator.comparingLong(step -> step.dueNanos));
+        // Entities arriving from each neighbour, plus one queue for submits and non-neighbours
+        private final List<Queue<Step>> inbox = new ArrayList<>(RegionLayout.SLOT_COUNT);
+
+        Region(int index) {
+            this.index = index;
+            for (int slot = 0; slot < RegionLayout.SLOT_COUNT; slot++) {
+                inbox.add(new ConcurrentLinkedQueue<>());
+            }
+            this.thread = new Thread(this, "region-" + index);
+            thread.setDaemon(true);
+        }
+
+        // Called from other threads
+        void handOff(int slot, Step step) {
+            inbox.get(slot).offer(step);
+            LockSupport.unpark(thread);
+        }
+
+        @Override
+        public void run() {
+            while (!stopped) {
+                takeHandoffs();
+                Step next = due.peek();
+                if (next == null) {
+                    // Woken by handOff() or shutdown()
+                    LockSupport.park(this);
+                    continue;
+                }
+                long wait = next.dueNanos - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(this, wait);
+                    continue;
+                }
+                due.poll();
+                step(next);
+            }
+        }
+
+        private void takeHandoffs() {
+            for (Queue<Step> queue : inbox) {
+                Step step;
+                while ((step = queue.poll()) != null) {
+                    due.add(step);
+                }
+            }
+        }
+
+        private void step(Step step) {
+            Entity entity = step.entity;
+            if (!entity.isRunning()) {
+                return;
+            }
+            long delay;
+            try {
+                delay = entity.performStep();
+            } catch (RuntimeException e) {
+                // Keep the worker alive for the rest of the tile; only this entity stops
+                System.err.println("Error in entity " + entity.getId() + ": " + e);
+                return;
+            }
+            if (delay == Entity.DONE || !entity.isRunning()) {
+                return;
+            }
+            step.dueNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.toRealMillis(delay));
+            int target = layout.regionOf(entity.getX(), entity.getY());
+            if (target == index) {
+                due.add(step);
+            } else {
+                HANDOFFS.increment();
+                regions[target].handOff(layout.handoffSlot(index, target), step);
+            }
+        }
+    }
+}
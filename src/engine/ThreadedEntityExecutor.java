@@ -0,0 +1,57 @@
+package engine;
+
+import config.GameConfig;
+import entities.Entity;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+
+// Gives every entity its own thread running Entity.run()
+public class ThreadedEntityExecutor extends RealTimeExecutor {
+    private final ThreadFactory threadFactory;
+    // Live threads only: each thread removes itself when its entity finishes
+    private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+    public ThreadedEntityExecutor(ThreadFactory threadFactory, GameConfig config) {
+        super(config);
+        this.threadFactory = threadFactory;
+    }
+
+    // Executor backed by virtual threads, named entity-0, entity-1, ...
+    static ThreadedEntityExecutor virtual(GameConfig config) {
+        return new ThreadedEntityExecutor(Thread.ofVirtual().name("entity-", 0).factory(), config);
+    }
+
+    @Override
+    public void submit(Entity entity) {
+        Thread thread = threadFactory.newThread(() -> {
+            try {
+                entity.run();
+            } finally {
+                threads.remove(Thread.currentThread());
+            }
+        });
+        threads.add(thread);
+        thread.start();
+    }
+
+    @Override
+    public int getThreadCount() {
+        return threads.size();
+    }
+
+    @Override
+    public void shutdown() {
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        threads.clear();
+    }
+}
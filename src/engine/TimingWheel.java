@@ -0,0 +1,123 @@
+package engine;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Hashed timing wheel: timeouts hash into one of WHEEL_SIZE buckets by their tick, so adding and
+// expiring one is O(1) whatever the number pending. A single ticker thread advances one bucket per
+// tick and hands due tasks to the dispatcher; deadlines are rounded up to the tick resolution.
+class TimingWheel {
+    static final int WHEEL_SIZE = 512;
+    private static final int MASK = WHEEL_SIZE - 1;
+
+    private final long tickNanos;
+    private final Executor dispatcher;
+    private final Timeout[] buckets = new Timeout[WHEEL_SIZE];
+    // New timeouts from any thread; only the ticker touches the buckets
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final long startNanos = System.nanoTime();
+    private final Thread ticker;
+    private volatile boolean running = true;
+    // Ticker thread only
+    private long tick;
+
+    TimingWheel(long tickMillis, Executor dispatcher, String name) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+        this.dispatcher = dispatcher;
+        this.ticker = new Thread(this::runTicker, name);
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    // Run task on the dispatcher once delayMillis real ms have passed
+    void schedule(Runnable task, long delayMillis) {
+        if (!running) {
+            return;
+        }
+        if (delayMillis <= 0) {
+            dispatch(task);
+            return;
+        }
+        long deadline = System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        pending.add(new Timeout(task, deadline));
+    }
+
+    // Drop every pending timeout and stop the ticker
+    void stop() {
+        running = false;
+        ticker.interrupt();
+        try {
+            ticker.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pending.clear();
+    }
+
+    private void runTicker() {
+        while (running) {
+            // Bucket `tick` is due once the tick after it has started
+            long wait = (tick + 1) * tickNanos - (System.nanoTime() - startNanos);
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+                continue;
+            }
+            transferPending();
+            expire(tick & MASK);
+            tick++;
+        }
+    }
+
+    private void transferPending() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            // Deadlines already behind the wheel go in the current bucket
+            long due = Math.max(timeout.deadline / tickNanos, tick);
+            timeout.rounds = (due - tick) / WHEEL_SIZE;
+            int index = (int) (due & MASK);
+            timeout.next = buckets[index];
+            buckets[index] = timeout;
+        }
+    }
+
+    private void expire(long index) {
+        Timeout timeout = buckets[(int) index];
+        Timeout kept = null;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.rounds == 0) {
+                dispatch(timeout.task);
+            } else {
+                timeout.rounds--;
+                timeout.next = kept;
+                kept = timeout;
+            }
+            timeout = next;
+        }
+        buckets[(int) index] = kept;
+    }
+
+    private void dispatch(Runnable task) {
+        try {
+            dispatcher.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Dispatcher is shutting down, the task simply never runs
+        }
+    }
+
+    private static class Timeout {
+        final Runnable task;
+        final long deadline;
+        long rounds;
+        Timeout next;
+
+        Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+    }
+}
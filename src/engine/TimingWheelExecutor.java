@@ -0,0 +1,110 @@
+package engine;
+
+import config.GameConfig;
+import entities.Entity;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+// Entity steps and repeating actions wait on a hashed timing wheel and run on a bounded pool.
+// Unlike the pooled scheduler's heap, the cost of a wake-up doesn't grow with the population.
+public class TimingWheelExecutor extends RealTimeExecutor {
+    private final ThreadPoolExecutor workers;
+    private final TimingWheel wheel;
+    // Bumped by stopRepeating(), so repeating tasks from before it stop rescheduling themselves
+    private final AtomicInteger repeatGeneration = new AtomicInteger();
+    // Held while a repeating action runs, so stopRepeating() can wait for it
+    private final ReentrantLock repeatLock = new ReentrantLock();
+
+    public TimingWheelExecutor(GameConfig config) {
+        super(config);
+        AtomicInteger threadCount = new AtomicInteger();
+        int threads = Math.max(1, config.getSchedulerThreads());
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "entity-wheel-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.wheel = new TimingWheel(config.getTimerTickMs(), workers, "entity-wheel-ticker");
+    }
+
+    @Override
+    public void submit(Entity entity) {
+        wheel.schedule(new StepTask(entity), 0);
+    }
+
+    @Override
+    public void scheduleRepeating(String name, LongSupplier intervalMillis, Runnable action) {
+        int generation = repeatGeneration.get();
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                if (repeatGeneration.get() != generation) {
+                    return;
+                }
+                repeatLock.lock();
+                try {
+                    if (repeatGeneration.get() != generation) {
+                        return;
+                    }
+                    action.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Error in " + name + ": " + e);
+                } finally {
+                    repeatLock.unlock();
+                }
+                wheel.schedule(this, config.toRealMillis(intervalMillis.getAsLong()));
+            }
+        };
+        wheel.schedule(task, config.toRealMillis(intervalMillis.getAsLong()));
+    }
+
+    @Override
+    public void stopRepeating() {
+        repeatGeneration.incrementAndGet();
+        if (!repeatLock.isHeldByCurrentThread()) {
+            repeatLock.lock();
+            repeatLock.unlock();
+        }
+    }
+
+    @Override
+    public int getThreadCount() {
+        return workers.getPoolSize() + 1;
+    }
+
+    @Override
+    public void shutdown() {
+        wheel.stop();
+        workers.shutdownNow();
+        try {
+            workers.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Runs one step and goes back on the wheel for the delay the entity asked for
+    private class StepTask implements Runnable {
+        private final Entity entity;
+
+        StepTask(Entity entity) {
+            this.entity = entity;
+        }
+
+        @Override
+        public void run() {
+            if (!entity.isRunning()) {
+                return;
+            }
+            long delay = entity.performStep();
+            if (delay != Entity.DONE && entity.isRunning()) {
+                wheel.schedule(this, config.toRealMillis(delay));
+            }
+        }
+    }
+}
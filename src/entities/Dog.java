@@ -1,46 +1,81 @@
 package entities;
 
-import config.GameConfig;
 import grid.Grid;
 
 public class Dog extends Entity {
-    private Rabbit target;
+    private static final int STEP_TIME = 800;
+    // Rabbit this dog holds the claim on; set by the dog's own steps, released by stopRunning() from
+    // another thread
+    private volatile Rabbit target;
+    // Rabbit the farmer pointed out, taken up on the dog's next step if nobody else chases it
+    private volatile Rabbit alert;
 
     public Dog(int x, int y, Grid grid) {
         super(x, y, grid, 1);
         grid.addEntity(this);
     }
 
+    // Called from the farmer's thread; only a hint, the dog claims the rabbit itself
     public void setTarget(Rabbit rabbit) {
-        this.target = rabbit;
+        this.alert = rabbit;
     }
 
     private void moveTowardsTarget() {
-        int[] targetPos = target.getPosition();
-        x += Integer.compare(targetPos[0], x);
-        y += Integer.compare(targetPos[1], y);
+        moveTowards(target.getX(), target.getY());
+    }
+
+    private boolean inRange(Rabbit rabbit, int range) {
+        return Math.abs(rabbit.getX() - getX()) <= range && Math.abs(rabbit.getY() - getY()) <= range;
+    }
+
+    @Override
+    public EntityType getType() {
+        return EntityType.DOG;
     }
 
     @Override
-    public void run() {
-        while (running) {
-            try {
-                if (target != null && target.isActive()) {
-                    moveTowardsTarget();
-                    if (x == target.getPosition()[0] && y == target.getPosition()[1]) {
-                        target.setActive(false);
-                        target = null;
-                    }
-                } else {
-                    int detectionRange = GameConfig.getInstance().getDogDetectionRange();
-                    target = grid.findNearbyRabbit(x, y, detectionRange);
-                    moveRandomly();
-                }
-                Thread.sleep(800);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
+    public long step() {
+        PursuitCoordinator pursuits = grid.getPursuits();
+        int detectionRange = grid.getConfig().getDogDetectionRange();
+        if (target != null && (!target.isActive() || !inRange(target, detectionRange))) {
+            // Gone or got away: let another dog have it
+            pursuits.release(this, target);
+            target = null;
+        }
+        if (target == null) {
+            Rabbit hint = alert;
+            alert = null;
+            if (hint != null && hint.isActive() && inRange(hint, detectionRange) && pursuits.claim(this, hint)) {
+                target = hint;
+            } else {
+                target = pursuits.claimNearest(this, detectionRange);
             }
         }
+
+        if (target != null && !running) {
+            // Stopped while this step was claiming: stopRunning() may have looked before the claim
+            pursuits.release(this, target);
+            target = null;
+        }
+
+        if (target == null) {
+            moveRandomly();
+        } else {
+            moveTowardsTarget();
+            if (getX() == target.getX() && getY() == target.getY()) {
+                pursuits.capture(this, target);
+                target = null;
+            }
+        }
+        return STEP_TIME;
+    }
+
+    @Override
+    public void stopRunning() {
+        super.stopRunning();
+        Rabbit current = target;
+        if (current != null) {
+            grid.getPursuits().release(this, current);
+        }
     }
-}
\ No newline at end of file
+}
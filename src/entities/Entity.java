@@ -2,40 +2,97 @@ package entities;
 
 import core.GameObject;
 import grid.Grid;
-import java.util.Random;
+import java.util.SplittableRandom;
+import metrics.Histogram;
+import metrics.MetricsRegistry;
 
 // Base class for all entities in the simulation
 public abstract class Entity extends GameObject implements Runnable {
+    // Returned by step() once the entity has nothing left to do
+    public static final long DONE = -1;
+    private static final Histogram STEP_TIME = MetricsRegistry.getInstance().histogram("entities.stepTime");
+
+    private final int id;
     protected Grid grid;
-    protected Random random;
+    // Derived from the grid's seed and this entity's id, so seeded runs draw the same numbers
+    protected SplittableRandom random;
     protected volatile boolean running;
     protected int speed;
 
     // Initialize entity with position, grid, and speed
     public Entity(int x, int y, Grid grid, int speed) {
         super(x, y);
+        this.id = grid.nextEntityId();
         this.grid = grid;
-        this.random = new Random();
+        this.random = grid.newRandom(id);
         this.running = true;
         this.speed = speed;
     }
 
     // Move entity randomly within the grid
     protected void moveRandomly() {
-        int newX = x + random.nextInt(3) - 1;
-        int newY = y + random.nextInt(3) - 1;
+        int newX = getX() + random.nextInt(3) - 1;
+        int newY = getY() + random.nextInt(3) - 1;
 
         if (grid.isValidPosition(newX, newY)) {
-            x = newX;
-            y = newY;
+            moveTo(newX, newY);
         }
     }
 
+    // One cell towards (targetX, targetY), diagonally if needed
+    protected void moveTowards(int targetX, int targetY) {
+        moveTo(getX() + Integer.compare(targetX, getX()), getY() + Integer.compare(targetY, getY()));
+    }
+
+    // Move to a cell and keep the grid's spatial index up to date
+    protected void moveTo(int newX, int newY) {
+        setPosition(newX, newY);
+        grid.moveEntity(this, newX, newY);
+    }
+
+    // Identifier unique within the entity's grid
+    public int getId() {
+        return id;
+    }
+
+    public abstract EntityType getType();
+
     // Stop the entity's running thread
     public void stopRunning() {
         running = false;
     }
 
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Perform one unit of behaviour and return the delay in ms before the next step, or DONE
+    public abstract long step();
+
+    // step() with its duration recorded; run() and the executors call this rather than step()
+    public final long performStep() {
+        long start = System.nanoTime();
+        try {
+            return step();
+        } finally {
+            STEP_TIME.recordSince(start);
+        }
+    }
+
+    // Thread-per-entity loop; pooled executors call step() directly instead
     @Override
-    public abstract void run();
-}
\ No newline at end of file
+    public void run() {
+        while (running) {
+            long delay = performStep();
+            if (delay == DONE) {
+                break;
+            }
+            try {
+                Thread.sleep(grid.getConfig().toRealMillis(delay));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+}
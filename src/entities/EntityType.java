@@ -0,0 +1,14 @@
+package entities;
+
+// Kind of entity, used where the object itself is not at hand (snapshots, save files)
+public enum EntityType {
+    FARMER,
+    DOG,
+    RABBIT;
+
+    private static final EntityType[] VALUES = values();
+
+    public static EntityType of(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
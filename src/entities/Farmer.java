@@ -1,12 +1,18 @@
 package entities;
 
 import config.GameConfig;
-import grid.Cell;
 import grid.CellState;
 import grid.Grid;
+import grid.WorkDispatcher;
 
 public class Farmer extends Entity {
-    private Dog companion;
+    private static final int STEP_TIME = 1000;
+    private final Dog companion;
+    // Cell reserved for this farmer by the grid's work dispatcher, walked to and then worked on; volatile
+    // because stopRunning() releases it from another thread
+    private volatile WorkDispatcher.Lease task;
+    // Work started on the task cell in the previous step (DAMAGED -> repair, EMPTY -> plant)
+    private CellState pendingWork;
 
     public Farmer(int x, int y, Grid grid) {
         super(x, y, grid, 1);
@@ -14,40 +20,83 @@ public class Farmer extends Entity {
         int dogX = (x + 1) % size;
         int dogY = (y + 1) % size;
         this.companion = new Dog(dogX, dogY, grid);
-        new Thread(companion).start();
+    }
+
+    public Dog getCompanion() {
+        return companion;
+    }
+
+    @Override
+    public EntityType getType() {
+        return EntityType.FARMER;
     }
 
     @Override
-    public void run() {
-        GameConfig config = GameConfig.getInstance();
-        while (running) {
-            try {
+    public long step() {
+        GameConfig.Snapshot config = grid.getConfig().snapshot();
+        if (pendingWork != null) {
+            // The cell may have changed while we worked; only a cell still in the expected state is updated
+            if (pendingWork == CellState.DAMAGED) {
+                grid.repair(getX(), getY());
+            } else {
+                grid.plant(getX(), getY());
+            }
+            pendingWork = null;
+            releaseTask();
+        } else {
+            if (task == null) {
+                task = grid.getWork().claim(getId(), getX(), getY());
+            }
+            if (task == null) {
+                // Nothing needs doing nearby
                 moveRandomly();
-                Cell currentCell = grid.getCell(x, y);
-
-                if (currentCell.getState() == CellState.DAMAGED) {
-                    Thread.sleep(config.getFarmerRepairTime());
-                    currentCell.repair();
-                } else if (currentCell.getState() == CellState.EMPTY) {
-                    Thread.sleep(config.getFarmerPlantTime());
-                    currentCell.plant();
-                }
+            } else if (getX() != task.getX() || getY() != task.getY()) {
+                moveTowards(task.getX(), task.getY());
+            }
 
-                Rabbit nearbyRabbit = grid.findNearbyRabbit(x, y, 3);
-                if (nearbyRabbit != null) {
-                    alertDog(nearbyRabbit);
+            if (task != null && getX() == task.getX() && getY() == task.getY()) {
+                CellState state = grid.getState(getX(), getY());
+                if (state == CellState.DAMAGED || state == CellState.EMPTY) {
+                    pendingWork = state;
+                    long delay = state == CellState.DAMAGED ? config.getFarmerRepairTime() : config.getFarmerPlantTime();
+                    if (!task.renew(delay)) {
+                        // Took too long and the cell was offered to others; the conditional update still
+                        // keeps two farmers from both applying the work
+                        task = null;
+                    }
+                    return delay;
                 }
-
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
+                // Already taken care of
+                releaseTask();
+            } else if (task != null && !task.renew(STEP_TIME)) {
+                task = null;
             }
         }
+
+        Rabbit nearbyRabbit = grid.getPursuits().findUnclaimed(getX(), getY(), 3);
+        if (nearbyRabbit != null) {
+            alertDog(nearbyRabbit);
+        }
+        return STEP_TIME;
+    }
+
+    // Also called from stopRunning() on another thread, hence the single read
+    private void releaseTask() {
+        WorkDispatcher.Lease current = task;
+        if (current != null) {
+            task = null;
+            current.release();
+        }
+    }
+
+    @Override
+    public void stopRunning() {
+        super.stopRunning();
         companion.stopRunning();
+        releaseTask();
     }
 
     public void alertDog(Rabbit rabbit) {
         companion.setTarget(rabbit);
     }
-}
\ No newline at end of file
+}
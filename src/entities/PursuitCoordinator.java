@@ -0,0 +1,62 @@
+package entities;
+
+import grid.Grid;
+import metrics.Counter;
+import metrics.MetricsRegistry;
+
+// Decides which dog chases which rabbit. A dog claims a rabbit by CAS on the rabbit's claim owner, so
+// every rabbit has at most one dog after it and the other dogs spread out over the remaining rabbits.
+// Only the claiming dog can catch its rabbit, and each catch is counted exactly once.
+public class PursuitCoordinator {
+    // Searches before giving up for this step, when other dogs keep claiming the nearest rabbit first
+    private static final int MAX_CLAIM_ATTEMPTS = 4;
+    private static final Counter RABBITS_CAUGHT = MetricsRegistry.getInstance().counter("rabbits.caught");
+    // Claims lost to another dog between finding a rabbit and claiming it
+    private static final Counter CLAIM_CONFLICTS = MetricsRegistry.getInstance().counter("dogs.claimConflicts");
+
+    private final Grid grid;
+
+    public PursuitCoordinator(Grid grid) {
+        this.grid = grid;
+    }
+
+    // Nearest active rabbit within range that no dog is chasing yet, without claiming it
+    public Rabbit findUnclaimed(int x, int y, int range) {
+        return grid.findNearbyRabbit(x, y, range, rabbit -> !rabbit.isClaimed());
+    }
+
+    // Claim the nearest unclaimed rabbit within range of the dog; null if there is none
+    public Rabbit claimNearest(Dog dog, int range) {
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+            Rabbit rabbit = findUnclaimed(dog.getX(), dog.getY(), range);
+            if (rabbit == null) {
+                return null;
+            }
+            if (rabbit.claim(dog.getId())) {
+                return rabbit;
+            }
+            CLAIM_CONFLICTS.increment();
+        }
+        return null;
+    }
+
+    // Claim a particular rabbit for the dog, e.g. one its farmer pointed out
+    public boolean claim(Dog dog, Rabbit rabbit) {
+        return rabbit.claim(dog.getId());
+    }
+
+    // The dog stops chasing the rabbit, so others may take it over
+    public void release(Dog dog, Rabbit rabbit) {
+        rabbit.releaseClaim(dog.getId());
+    }
+
+    // Catch the rabbit if the dog holds its claim and it is still around; true for exactly one catch
+    public boolean capture(Dog dog, Rabbit rabbit) {
+        if (!rabbit.catchBy(dog.getId())) {
+            return false;
+        }
+        RABBITS_CAUGHT.increment();
+        grid.getStats().rabbitCaught();
+        return true;
+    }
+}
@@ -1,12 +1,18 @@
 package entities;
 
-import grid.Cell;
 import grid.CellState;
 import grid.Grid;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Rabbit extends Entity {
+    private static final int UNCLAIMED = 0;
     private int eatingDuration;
+    private int mealsEaten;
+    private boolean eating;
     private static final int EATING_TIME = 500;
+    private static final int STEP_TIME = 1000;
+    // Id of the dog chasing this rabbit, UNCLAIMED if none; entity ids start at 1
+    private final AtomicInteger claimOwner = new AtomicInteger(UNCLAIMED);
 
     public Rabbit(int x, int y, Grid grid) {
         super(x, y, grid, 1);
@@ -14,25 +20,54 @@ public class Rabbit extends Entity {
     }
 
     @Override
-    public void run() {
-        int mealsEaten = 0;
-        while (running && mealsEaten < eatingDuration && isActive) {
-            try {
-                moveRandomly();
-                Cell currentCell = grid.getCell(x, y);
-
-                if (currentCell.getState() == CellState.READY) {
-                    Thread.sleep(EATING_TIME);
-                    currentCell.damage();
-                    mealsEaten++;
-                }
-
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            }
+    public EntityType getType() {
+        return EntityType.RABBIT;
+    }
+
+    public boolean isClaimed() {
+        return claimOwner.get() != UNCLAIMED;
+    }
+
+    // Become the target of the given dog; false if another dog already chases this rabbit
+    boolean claim(int dogId) {
+        return isActive() && claimOwner.compareAndSet(UNCLAIMED, dogId);
+    }
+
+    // Let other dogs chase this rabbit again; only the claiming dog can do this
+    void releaseClaim(int dogId) {
+        claimOwner.compareAndSet(dogId, UNCLAIMED);
+    }
+
+    // Caught by the dog holding the claim; false if it isn't the owner or the rabbit was already gone
+    boolean catchBy(int dogId) {
+        return claimOwner.get() == dogId && deactivate();
+    }
+
+    @Override
+    public long step() {
+        if (!running || mealsEaten >= eatingDuration || !isActive()) {
+            setActive(false);
+            return DONE;
         }
+
+        if (eating) {
+            grid.damage(getX(), getY());
+            mealsEaten++;
+            eating = false;
+            return STEP_TIME;
+        }
+
+        moveRandomly();
+        if (grid.getState(getX(), getY()) == CellState.READY) {
+            eating = true;
+            return EATING_TIME;
+        }
+        return STEP_TIME;
+    }
+
+    @Override
+    public void stopRunning() {
+        super.stopRunning();
         setActive(false);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,65 @@
+package grid;
+
+// Rectangle of cells: x from getX() for getWidth() rows, y from getY() for getHeight() columns.
+// Cells of an area are laid out in arrays as (x - getX()) * getHeight() + (y - getY()).
+public final class Area {
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+
+    public Area(int x, int y, int width, int height) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    // The whole of a size x size field
+    public static Area field(int size) {
+        return new Area(0, 0, size, size);
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getCellCount() {
+        return width * height;
+    }
+
+    public boolean contains(int cx, int cy) {
+        return cx >= x && cx < x + width && cy >= y && cy < y + height;
+    }
+
+    // Cells in both areas, or null if they don't overlap
+    public Area intersect(Area other) {
+        int x0 = Math.max(x, other.x);
+        int y0 = Math.max(y, other.y);
+        int x1 = Math.min(x + width, other.x + other.width);
+        int y1 = Math.min(y + height, other.y + other.height);
+        return x0 < x1 && y0 < y1 ? new Area(x0, y0, x1 - x0, y1 - y0) : null;
+    }
+
+    // This area grown by margin cells on every side, clipped to a size x size field
+    public Area expand(int margin, int size) {
+        return new Area(x - margin, y - margin, width + 2 * margin, height + 2 * margin).intersect(field(size));
+    }
+
+    @Override
+    public String toString() {
+        return "[" + x + "," + y + " " + width + "x" + height + "]";
+    }
+}
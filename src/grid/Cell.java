@@ -3,35 +3,50 @@ package grid;
 public class Cell {
     private CellState state;
     private int growthStage;
-    private static final int MAX_GROWTH = 5;
+    private static final int MAX_GROWTH = CellStorage.MAX_GROWTH;
 
     public Cell() {
         this.state = CellState.EMPTY;
         this.growthStage = 0;
     }
 
-    public synchronized void plant() {
+    // Transitions only from the state they expect; false if the cell was in another one
+    public synchronized boolean plant() {
+        if (state != CellState.EMPTY) {
+            return false;
+        }
         this.state = CellState.GROWING;
         this.growthStage = 0;
+        return true;
     }
 
-    public synchronized void damage() {
+    public synchronized boolean damage() {
+        if (state != CellState.GROWING && state != CellState.READY) {
+            return false;
+        }
         this.state = CellState.DAMAGED;
         this.growthStage = 0;
+        return true;
     }
 
-    public synchronized void repair() {
+    public synchronized boolean repair() {
+        if (state != CellState.DAMAGED) {
+            return false;
+        }
         this.state = CellState.EMPTY;
         this.growthStage = 0;
+        return true;
     }
 
-    public synchronized void grow() {
+    public synchronized boolean grow() {
         if (state == CellState.GROWING && growthStage < MAX_GROWTH) {
             growthStage++;
             if (growthStage == MAX_GROWTH) {
                 state = CellState.READY;
             }
+            return true;
         }
+        return false;
     }
 
     public synchronized CellState getState() {
@@ -41,4 +56,24 @@ public class Cell {
     public synchronized int getGrowthStage() {
         return growthStage;
     }
-}
\ No newline at end of file
+
+    // Restore a packed value as produced by read()
+    public synchronized void set(int packed) {
+        this.state = CellStorage.stateOf(packed);
+        this.growthStage = CellStorage.stageOf(packed);
+    }
+
+    // Replace a packed value only if the cell still holds expected
+    public synchronized boolean compareAndSet(int expected, int next) {
+        if (read() != expected) {
+            return false;
+        }
+        set(next);
+        return true;
+    }
+
+    // State and stage under a single lock, packed as in CellStorage.pack()
+    public synchronized int read() {
+        return CellStorage.pack(state, growthStage);
+    }
+}
@@ -5,5 +5,12 @@ public enum CellState {
     EMPTY,
     GROWING,
     READY,
-    DAMAGED
-}
\ No newline at end of file
+    DAMAGED;
+
+    private static final CellState[] VALUES = values();
+
+    // Look up a state by ordinal without cloning values()
+    public static CellState of(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
@@ -0,0 +1,81 @@
+package grid;
+
+// Backend holding the state and growth stage of every cell in the grid
+public interface CellStorage {
+    int MAX_GROWTH = 5;
+
+    CellState getState(int x, int y);
+
+    int getGrowthStage(int x, int y);
+
+    // State and stage read together in one consistent value, see pack()
+    int read(int x, int y);
+
+    // Transitions from the state they expect, atomically; false if the cell was in any other state
+    // EMPTY -> GROWING
+    boolean plant(int x, int y);
+
+    // GROWING or READY -> DAMAGED
+    boolean damage(int x, int y);
+
+    // DAMAGED -> EMPTY
+    boolean repair(int x, int y);
+
+    // Set the cell to next only if it still reads expected (both packed); false if it changed meanwhile
+    boolean compareAndSet(int x, int y, int expected, int next);
+
+    // Advance a growing cell by one stage; returns false if the cell was not growing
+    boolean grow(int x, int y);
+
+    // Copy every packed cell into dest, indexed x * size + y. Each cell is read consistently, but cells
+    // changing during the copy are caught before or after the change, so the copy spans a short interval
+    void copyTo(byte[] dest);
+
+    // Overwrite every cell from packed values laid out as in copyTo(); only while no entity is running
+    void load(byte[] src);
+
+    // Pack a state and stage into one value: stage in the high bits, state ordinal in the low two
+    static int pack(CellState state, int stage) {
+        return (stage << 2) | state.ordinal();
+    }
+
+    static CellState stateOf(int packed) {
+        return CellState.of(packed & 3);
+    }
+
+    static int stageOf(int packed) {
+        return packed >>> 2;
+    }
+
+    // True for a value some cell can actually hold: a stage only while GROWING (below MAX_GROWTH) or
+    // READY (at MAX_GROWTH). Values read from files are checked with this before they reach a backend.
+    static boolean isValid(int packed) {
+        if (packed < 0) {
+            return false;
+        }
+        int stage = stageOf(packed);
+        switch (stateOf(packed)) {
+            case GROWING:
+                return stage < MAX_GROWTH;
+            case READY:
+                return stage == MAX_GROWTH;
+            default:
+                return stage == 0;
+        }
+    }
+
+    // GROWING or READY, i.e. something a rabbit can eat
+    static boolean isCrop(int packed) {
+        CellState state = stateOf(packed);
+        return state == CellState.GROWING || state == CellState.READY;
+    }
+
+    // Value of a cell after one growth step; cells that are not growing are returned unchanged
+    static int grown(int packed) {
+        if (stateOf(packed) != CellState.GROWING) {
+            return packed;
+        }
+        int stage = stageOf(packed) + 1;
+        return pack(stage == MAX_GROWTH ? CellState.READY : CellState.GROWING, stage);
+    }
+}
@@ -0,0 +1,63 @@
+package grid;
+
+import java.util.BitSet;
+import java.util.function.IntConsumer;
+
+// Every cell that changed between two drains of a ChangeBus, coalesced: each cell appears once however
+// often it changed. Cells are reported by index (x * size + y) only; read the grid for
+// their current value, which is never older than the change.
+public final class ChangeBatch {
+    private final BitSet cells = new BitSet();
+    private boolean resync;
+    private int eventCount;
+
+    void addCell(int index) {
+        cells.set(index);
+        eventCount++;
+    }
+
+    void addCells(int from, int to) {
+        cells.set(from, to);
+        eventCount++;
+    }
+
+    void markResync() {
+        resync = true;
+    }
+
+    void clear() {
+        cells.clear();
+        resync = false;
+        eventCount = 0;
+    }
+
+    boolean isEmpty() {
+        return eventCount == 0 && !resync;
+    }
+
+    // Some events were lost, e.g. a producer outran its buffer or the grid was reloaded: treat every
+    // cell as changed
+    public boolean isResync() {
+        return resync;
+    }
+
+    // Events coalesced into this batch
+    public int getEventCount() {
+        return eventCount;
+    }
+
+    public int getCellCount() {
+        return cells.cardinality();
+    }
+
+    public void forEachCell(IntConsumer action) {
+        for (int i = cells.nextSetBit(0); i >= 0; i = cells.nextSetBit(i + 1)) {
+            action.accept(i);
+        }
+    }
+
+    // Add the changed cell indices to dest
+    public void addCellsTo(BitSet dest) {
+        dest.or(cells);
+    }
+}
@@ -0,0 +1,161 @@
+package grid;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import metrics.Counter;
+import metrics.MetricsRegistry;
+
+// Carries cell transitions from the threads making them to subscribers. Producers write into one of a
+// fixed set of ring buffers picked by thread id, so threads seldom share one and publishing is a claimed
+// slot and a store that never blocks; a producer that finds its ring full drops the event and flags the
+// next batch as a resync instead of waiting. drain() empties every ring into one coalesced ChangeBatch,
+// so a subscriber's cost follows the rate of change, not the size of the grid. The rings are allocated
+// by the first subscriber and nothing is recorded while there are none. Cell indices take 30 bits,
+// enough for 32768 x 32768.
+public class ChangeBus {
+    // Events per ring between two drains before falling back to a resync
+    private static final int CAPACITY = 4096;
+    private static final int MASK = CAPACITY - 1;
+    // A power of two, at least one ring per core
+    private static final int STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+    private static final int KIND_SHIFT = 60;
+    private static final long CELL = 0;
+    private static final long CELLS = 1;
+    private static final long RESET = 2;
+    private static final long INDEX_MASK = (1L << 30) - 1;
+    private static final Counter EVENTS = MetricsRegistry.getInstance().counter("bus.events");
+    private static final Counter OVERFLOWS = MetricsRegistry.getInstance().counter("bus.overflows");
+
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final ChangeBatch batch = new ChangeBatch();
+    private volatile Ring[] rings;
+    private volatile boolean active;
+
+    public synchronized void subscribe(ChangeListener listener) {
+        if (rings == null) {
+            Ring[] created = new Ring[STRIPES];
+            for (int i = 0; i < created.length; i++) {
+                created[i] = new Ring();
+            }
+            rings = created;
+        }
+        listeners.add(listener);
+        active = true;
+    }
+
+    public synchronized void unsubscribe(ChangeListener listener) {
+        listeners.remove(listener);
+        active = !listeners.isEmpty();
+    }
+
+    // The calling thread's ring; only valid once active
+    private Ring ring() {
+        return rings[(int) Thread.currentThread().threadId() & (STRIPES - 1)];
+    }
+
+    void cellChanged(int index) {
+        if (active) {
+            ring().offer(CELL << KIND_SHIFT | index);
+        }
+    }
+
+    // Cells from index from up to, not including, to; e.g. the rows of a growth stripe
+    void cellsChanged(int from, int to) {
+        if (active) {
+            ring().offer(CELLS << KIND_SHIFT | (long) from << 30 | (to - from));
+        }
+    }
+
+    // Too much changed to describe, e.g. the grid was reloaded
+    void reset() {
+        if (active) {
+            ring().offer(RESET << KIND_SHIFT);
+        }
+    }
+
+    // Collect every event published so far and hand the coalesced batch to each subscriber, on this
+    // thread. Consumers call this when they want to catch up, e.g. before publishing a snapshot.
+    public synchronized void drain() {
+        if (rings == null) {
+            return;
+        }
+        for (Ring producer : rings) {
+            producer.drainInto(batch);
+        }
+        if (!batch.isEmpty()) {
+            EVENTS.add(batch.getEventCount());
+            for (ChangeListener listener : listeners) {
+                listener.onChanges(batch);
+            }
+        }
+        batch.clear();
+    }
+
+    // Multi-producer single-consumer ring: producers claim a slot by moving tail, then fill it; drain()
+    // takes filled slots in order and empties them again
+    private static final class Ring {
+        // Codes are never negative
+        private static final long EMPTY = -1;
+
+        private final AtomicLongArray codes = new AtomicLongArray(CAPACITY);
+        private final AtomicLong head = new AtomicLong();
+        private final AtomicLong tail = new AtomicLong();
+        private volatile boolean overflowed;
+
+        Ring() {
+            for (int i = 0; i < CAPACITY; i++) {
+                codes.setPlain(i, EMPTY);
+            }
+        }
+
+        void offer(long code) {
+            long t;
+            do {
+                t = tail.get();
+                if (t - head.getAcquire() >= CAPACITY) {
+                    if (!overflowed) {
+                        overflowed = true;
+                        OVERFLOWS.increment();
+                    }
+                    return;
+                }
+            } while (!tail.compareAndSet(t, t + 1));
+            codes.setRelease((int) t & MASK, code);
+        }
+
+        void drainInto(ChangeBatch batch) {
+            if (overflowed) {
+                // Cleared before reading, so an overflow while draining shows up in the next batch
+                overflowed = false;
+                batch.markResync();
+            }
+            long h = head.get();
+            while (true) {
+                int slot = (int) h & MASK;
+                long code = codes.getAcquire(slot);
+                // Either drained, or a producer claimed the slot and hasn't filled it yet; the events
+                // after it wait for the next drain
+                if (code == EMPTY) {
+                    break;
+                }
+                // Emptied before head moves past it, so the producer that reuses the slot comes after
+                codes.setPlain(slot, EMPTY);
+                switch ((int) (code >>> KIND_SHIFT)) {
+                    case (int) CELL:
+                        batch.addCell((int) (code & INDEX_MASK));
+                        break;
+                    case (int) CELLS:
+                        int from = (int) (code >>> 30 & INDEX_MASK);
+                        batch.addCells(from, from + (int) (code & INDEX_MASK));
+                        break;
+                    default:
+                        batch.markResync();
+                }
+                h++;
+            }
+            head.setRelease(h);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package grid;
+
+// Receives the grid's changes in coalesced batches, see ChangeBus
+public interface ChangeListener {
+    // Called on the thread draining the bus; the batch is only valid during the call
+    void onChanges(ChangeBatch batch);
+}
@@ -0,0 +1,32 @@
+package grid;
+
+import java.util.BitSet;
+
+// Subscriber that collects changed cells until its owner wants them, for consumers working on their
+// own schedule such as the snapshot publisher. Starts out with everything changed.
+public class ChangeTracker implements ChangeListener {
+    private final BitSet cells = new BitSet();
+    private boolean everything = true;
+
+    @Override
+    public synchronized void onChanges(ChangeBatch batch) {
+        if (batch.isResync()) {
+            everything = true;
+        }
+        if (!everything) {
+            batch.addCellsTo(cells);
+        }
+    }
+
+    // Add the cells changed since the last call to dest and start collecting afresh; true instead if
+    // every cell has to be treated as changed
+    public synchronized boolean takeInto(BitSet dest) {
+        boolean all = everything;
+        if (!all) {
+            dest.or(cells);
+        }
+        cells.clear();
+        everything = false;
+        return all;
+    }
+}
@@ -0,0 +1,50 @@
+package grid;
+
+import entities.Entity;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// Concurrent set of live entities with O(1) add and remove and weakly consistent iteration
+public class EntityRegistry {
+    private final Set<Entity> entities = ConcurrentHashMap.newKeySet();
+
+    public void add(Entity entity) {
+        entities.add(entity);
+    }
+
+    public boolean remove(Entity entity) {
+        return entities.remove(entity);
+    }
+
+    public int size() {
+        return entities.size();
+    }
+
+    // Iterate without copying; entities added or removed meanwhile may or may not be seen
+    public void forEach(Consumer<Entity> action) {
+        entities.forEach(action);
+    }
+
+    public List<Entity> toList() {
+        return new ArrayList<>(entities);
+    }
+
+    // Remove every entity matching the filter and return the ones removed
+    public List<Entity> removeIf(Predicate<Entity> filter) {
+        List<Entity> removed = new ArrayList<>();
+        for (Entity entity : entities) {
+            if (filter.test(entity) && entities.remove(entity)) {
+                removed.add(entity);
+            }
+        }
+        return removed;
+    }
+
+    public void clear() {
+        entities.clear();
+    }
+}
@@ -0,0 +1,79 @@
+package grid;
+
+import java.util.function.ToLongFunction;
+import metrics.TimeSeries;
+
+// How a farm's stats developed: per-second and per-minute event counts in fixed-size time series, for
+// charts. sample() must be called once a second; it only reads the stats, so it never slows down the
+// entities counting them.
+public class FarmHistory {
+    // Five minutes of seconds and four hours of minutes
+    public static final int SECONDS = 300;
+    public static final int MINUTES = 240;
+
+    public enum Stat {
+        PLANTED("planted", FarmStats::getPlanted),
+        RIPENED("ripened", FarmStats::getRipened),
+        EATEN("eaten", FarmStats::getEaten),
+        REPAIRED("repaired", FarmStats::getRepaired),
+        RABBITS_SPAWNED("rabbits spawned", FarmStats::getRabbitsSpawned),
+        RABBITS_CAUGHT("rabbits caught", FarmStats::getRabbitsCaught);
+
+        private final String label;
+        private final ToLongFunction<FarmStats> total;
+
+        Stat(String label, ToLongFunction<FarmStats> total) {
+            this.label = label;
+            this.total = total;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private final FarmStats stats;
+    private final TimeSeries[] perSecond = new TimeSeries[Stat.values().length];
+    private final TimeSeries[] perMinute = new TimeSeries[Stat.values().length];
+    // Totals at the previous sample, and counts so far in the minute being filled
+    private final long[] lastTotals = new long[Stat.values().length];
+    private final long[] minuteCounts = new long[Stat.values().length];
+    private int secondsInMinute;
+
+    public FarmHistory(FarmStats stats) {
+        this.stats = stats;
+        for (Stat stat : Stat.values()) {
+            perSecond[stat.ordinal()] = new TimeSeries(1000, SECONDS);
+            perMinute[stat.ordinal()] = new TimeSeries(60_000, MINUTES);
+            lastTotals[stat.ordinal()] = stat.total.applyAsLong(stats);
+        }
+    }
+
+    // Close the current second, and every sixtieth call the current minute
+    public synchronized void sample() {
+        secondsInMinute++;
+        for (Stat stat : Stat.values()) {
+            int i = stat.ordinal();
+            long total = stat.total.applyAsLong(stats);
+            long count = total - lastTotals[i];
+            lastTotals[i] = total;
+            perSecond[i].add(count);
+            minuteCounts[i] += count;
+            if (secondsInMinute == 60) {
+                perMinute[i].add(minuteCounts[i]);
+                minuteCounts[i] = 0;
+            }
+        }
+        if (secondsInMinute == 60) {
+            secondsInMinute = 0;
+        }
+    }
+
+    public TimeSeries getPerSecond(Stat stat) {
+        return perSecond[stat.ordinal()];
+    }
+
+    public TimeSeries getPerMinute(Stat stat) {
+        return perMinute[stat.ordinal()];
+    }
+}
@@ -0,0 +1,63 @@
+package grid;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Running totals of what happened on one farm; updated from many entity threads at once
+public class FarmStats {
+    private final LongAdder planted = new LongAdder();
+    private final LongAdder ripened = new LongAdder();
+    private final LongAdder eaten = new LongAdder();
+    private final LongAdder repaired = new LongAdder();
+    private final LongAdder rabbitsSpawned = new LongAdder();
+    private final LongAdder rabbitsCaught = new LongAdder();
+
+    void planted() {
+        planted.increment();
+    }
+
+    void ripened() {
+        ripened.increment();
+    }
+
+    void eaten() {
+        eaten.increment();
+    }
+
+    void repaired() {
+        repaired.increment();
+    }
+
+    public void rabbitSpawned() {
+        rabbitsSpawned.increment();
+    }
+
+    public void rabbitCaught() {
+        rabbitsCaught.increment();
+    }
+
+    public long getPlanted() {
+        return planted.sum();
+    }
+
+    // Carrots that grew all the way to READY
+    public long getRipened() {
+        return ripened.sum();
+    }
+
+    // Cells damaged by rabbits
+    public long getEaten() {
+        return eaten.sum();
+    }
+
+    public long getRepaired() {
+        return repaired.sum();
+    }
+
+    public long getRabbitsSpawned() {
+        return rabbitsSpawned.sum();
+    }
+
+    public long getRabbitsCaught() {
+        return rabbitsCaught.sum();
+    }
+}
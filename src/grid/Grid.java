@@ -1,33 +1,246 @@
 package grid;
 
+import config.CellStorageType;
+import config.ExecutionMode;
+import config.GameConfig;
 import entities.Entity;
+import entities.PursuitCoordinator;
 import entities.Rabbit;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+import metrics.Counter;
+import metrics.MetricsRegistry;
 
 public class Grid {
+    // Rows per growth stripe; each stripe can be advanced independently
+    private static final int STRIPE_ROWS = 16;
+    private static final Counter RABBITS_REMOVED = MetricsRegistry.getInstance().counter("rabbits.removed");
+
     private final int size;
-    private final Cell[][] grid;
-    private final List<Entity> entities;
+    private final GameConfig config;
+    // Entity random generators are derived from this and the entity id
+    private final long seed;
+    private final FarmStats stats = new FarmStats();
+    // How the field is split into tiles for REGION mode
+    private final RegionLayout regions;
+    private final CellStorage cells;
+    private final EntityRegistry entities;
+    private final SpatialIndex spatialIndex;
+    // Cells waiting to be planted or repaired, and which farmer is on each
+    private final WorkDispatcher work;
+    // Which dog chases which rabbit
+    private final PursuitCoordinator pursuits;
+    // Indices of cells that may be GROWING, split into row stripes; growth ticks only visit these
+    private final List<Set<Integer>> growingStripes;
+    // One per growth stripe; orders cell changes with their journal records while journaling
+    private final Object[] stripeLocks;
+    private final AtomicInteger entityIds = new AtomicInteger();
+    // Held for a whole growth tick, so work done between ticks sees no half-grown field
+    private final Object tickLock = new Object();
+    // Cells this grid may change; the rest belong to other shards and are only mirrored here
+    private volatile Area owned;
+    // Cell changes for subscribers that want to follow along without rescanning
+    private final ChangeBus changes = new ChangeBus();
+    // Receives every cell transition and entity spawn/removal while autosave is on
+    private volatile Journal journal;
 
     public Grid(int size) {
+        this(size, GameConfig.getInstance(), new Random().nextLong());
+    }
+
+    public Grid(int size, CellStorageType storageType) {
+        this(size, storageType, GameConfig.getInstance(), new Random().nextLong());
+    }
+
+    // Grid for a simulation with its own parameters and seed
+    public Grid(int size, GameConfig config, long seed) {
+        this(size, config.getCellStorage(), config, seed);
+    }
+
+    private Grid(int size, CellStorageType storageType, GameConfig config, long seed) {
         this.size = size;
-        this.grid = new Cell[size][size];
-        this.entities = new CopyOnWriteArrayList<>();
-        initializeGrid();
+        this.config = config;
+        this.seed = seed;
+        this.regions = RegionLayout.of(size, config);
+        this.owned = Area.field(size);
+        if (storageType == CellStorageType.OBJECT) {
+            this.cells = new ObjectCellStorage(size);
+        } else if (config.getExecutionMode() == ExecutionMode.REGION) {
+            // Each region's worker gets its own block of cells
+            this.cells = new RegionCellStorage(regions);
+        } else {
+            this.cells = new PackedCellStorage(size);
+        }
+        this.entities = new EntityRegistry();
+        this.spatialIndex = new SpatialIndex(size);
+        this.work = new WorkDispatcher(size, cells, this);
+        this.pursuits = new PursuitCoordinator(this);
+        this.growingStripes = newStripes((size + STRIPE_ROWS - 1) / STRIPE_ROWS);
+        this.stripeLocks = new Object[growingStripes.size()];
+        for (int i = 0; i < stripeLocks.length; i++) {
+            stripeLocks[i] = new Object();
+        }
     }
 
-    private void initializeGrid() {
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                grid[i][j] = new Cell();
-            }
+    private static List<Set<Integer>> newStripes(int count) {
+        List<Set<Integer>> stripes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            stripes.add(ConcurrentHashMap.newKeySet());
+        }
+        return stripes;
+    }
+
+    // Parameters of the simulation this grid belongs to
+    public GameConfig getConfig() {
+        return config;
+    }
+
+    public FarmStats getStats() {
+        return stats;
+    }
+
+    public WorkDispatcher getWork() {
+        return work;
+    }
+
+    // Cells outside the area become read-only mirrors and farmers are only offered work inside it;
+    // call before entities start running
+    public void setOwned(Area area) {
+        this.owned = area;
+        work.rebuild();
+    }
+
+    public Area getOwned() {
+        return owned;
+    }
+
+    public boolean owns(int x, int y) {
+        return owned.contains(x, y);
+    }
+
+    public ChangeBus getChanges() {
+        return changes;
+    }
+
+    public RegionLayout getRegions() {
+        return regions;
+    }
+
+    public PursuitCoordinator getPursuits() {
+        return pursuits;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    // Random generator for an entity, reproducible from the grid's seed and the entity id.
+    // Ids start at 1, so id 0 is free for the simulation's own draws.
+    public SplittableRandom newRandom(int entityId) {
+        return new SplittableRandom(seed ^ (entityId * 0x9E3779B97F4A7C15L));
+    }
+
+    public CellState getState(int x, int y) {
+        return cells.getState(x, y);
+    }
+
+    public int getGrowthStage(int x, int y) {
+        return cells.getGrowthStage(x, y);
+    }
+
+    // State and stage of a cell in one consistent read, decode with CellStorage.stateOf/stageOf
+    public int readCell(int x, int y) {
+        return cells.read(x, y);
+    }
+
+    // Plant an EMPTY cell; false if it isn't EMPTY, e.g. another farmer got there first
+    public boolean plant(int x, int y) {
+        if (!owns(x, y) || !transition(x, y, this::plantCell)) {
+            return false;
+        }
+        work.refresh(x, y);
+        changes.cellChanged(x * size + y);
+        stats.planted();
+        return true;
+    }
+
+    // Joins the growing set in the same step, so a growth tick never sees a GROWING cell outside it
+    private boolean plantCell(int x, int y) {
+        if (!cells.plant(x, y)) {
+            return false;
         }
+        growingStripes.get(x / STRIPE_ROWS).add(x * size + y);
+        return true;
     }
 
-    public Cell getCell(int x, int y) {
-        return grid[x][y];
+    // Eat a GROWING or READY cell; false if there was nothing to eat, e.g. another rabbit was faster.
+    // Mirror cells are never eaten: in a shard a rabbit on one is handed to its owner at the end of the
+    // tick, before its eating step, and starts over there without the meal it was about to take
+    public boolean damage(int x, int y) {
+        if (!owns(x, y) || !transition(x, y, cells::damage)) {
+            return false;
+        }
+        work.refresh(x, y);
+        changes.cellChanged(x * size + y);
+        stats.eaten();
+        return true;
+    }
+
+    // Repair a DAMAGED cell; false if it isn't DAMAGED (any more)
+    public boolean repair(int x, int y) {
+        if (!owns(x, y) || !transition(x, y, cells::repair)) {
+            return false;
+        }
+        work.refresh(x, y);
+        changes.cellChanged(x * size + y);
+        stats.repaired();
+        return true;
+    }
+
+    public boolean grow(int x, int y) {
+        boolean grown = transition(x, y, cells::grow);
+        if (grown && cells.getState(x, y) == CellState.READY) {
+            stats.ripened();
+        }
+        if (grown) {
+            changes.cellChanged(x * size + y);
+        }
+        return grown;
+    }
+
+    // A change to one cell that reports whether it happened
+    private interface Transition {
+        boolean apply(int x, int y);
+    }
+
+    // Apply a transition. While journaling, the cell's new value is appended under the lock of its
+    // growth stripe in the same step, so the journal has every cell's changes, and the stripe's growth,
+    // in the order they reached the storage.
+    private boolean transition(int x, int y, Transition transition) {
+        Journal j = journal;
+        if (j == null) {
+            return transition.apply(x, y);
+        }
+        synchronized (stripeLocks[x / STRIPE_ROWS]) {
+            if (!transition.apply(x, y)) {
+                return false;
+            }
+            j.cell(x * size + y, cells.read(x, y));
+            return true;
+        }
     }
 
     public int getSize() {
@@ -38,43 +251,259 @@ public class Grid {
         return x >= 0 && x < size && y >= 0 && y < size;
     }
 
+    public int nextEntityId() {
+        return entityIds.incrementAndGet();
+    }
+
+    // Copy every cell's packed value into dest, indexed x * size + y; see CellStorage.copyTo() for how
+    // consistent that is while entities run
+    public void copyCells(byte[] dest) {
+        cells.copyTo(dest);
+    }
+
+    // Copy the packed cells of an area into dest, laid out as described in Area
+    public void copyArea(Area area, byte[] dest) {
+        int i = 0;
+        for (int x = area.getX(); x < area.getX() + area.getWidth(); x++) {
+            for (int y = area.getY(); y < area.getY() + area.getHeight(); y++) {
+                dest[i++] = (byte) cells.read(x, y);
+            }
+        }
+    }
+
+    // Overwrite the mirrored cells of an area with another shard's values; cells this grid owns are
+    // left alone. Mirrors don't grow, count in the stats or go to the journal; their owner does that.
+    public void writeHalo(Area area, byte[] src) {
+        int i = 0;
+        for (int x = area.getX(); x < area.getX() + area.getWidth(); x++) {
+            for (int y = area.getY(); y < area.getY() + area.getHeight(); y++) {
+                int value = src[i++];
+                if (!owns(x, y)) {
+                    // Nothing else changes a mirrored cell, so the first attempt succeeds
+                    int current = cells.read(x, y);
+                    if (current != value) {
+                        while (!cells.compareAndSet(x, y, current, value)) {
+                            current = cells.read(x, y);
+                        }
+                        changes.cellChanged(x * size + y);
+                    }
+                }
+            }
+        }
+    }
+
+    // Replace every cell with the given packed values and rebuild the growing set
+    public void loadCells(byte[] packed) {
+        if (packed.length != size * size) {
+            throw new IllegalArgumentException("Expected " + size * size + " cells, got " + packed.length);
+        }
+        cells.load(packed);
+        for (Set<Integer> stripe : growingStripes) {
+            stripe.clear();
+        }
+        for (int index = 0; index < packed.length; index++) {
+            if (CellStorage.stateOf(packed[index]) == CellState.GROWING) {
+                growingStripes.get(index / size / STRIPE_ROWS).add(index);
+            }
+        }
+        work.rebuild();
+        changes.reset();
+    }
+
     public void addEntity(Entity entity) {
         entities.add(entity);
+        spatialIndex.add(entity, entity.getX(), entity.getY());
+        Journal j = journal;
+        if (j != null) {
+            j.spawn(entity);
+        }
     }
 
     public void removeEntity(Entity entity) {
         entities.remove(entity);
+        spatialIndex.remove(entity);
+        Journal j = journal;
+        if (j != null) {
+            j.remove(entity);
+        }
+    }
+
+    // Called by entities after they change cell
+    public void moveEntity(Entity entity, int newX, int newY) {
+        spatialIndex.move(entity, newX, newY);
     }
 
+    // Copy of the live entities; prefer forEachEntity() on hot paths
     public List<Entity> getEntities() {
-        return new ArrayList<>(entities);
+        return entities.toList();
+    }
+
+    public void forEachEntity(Consumer<Entity> action) {
+        entities.forEach(action);
+    }
+
+    public int getEntityCount() {
+        return entities.size();
     }
 
     public void clearEntities() {
         entities.clear();
+        spatialIndex.clear();
     }
 
-    public Rabbit findNearbyRabbit(int x, int y, int range) {
-        for (Entity entity : entities) {
-            if (entity instanceof Rabbit && entity.isActive()) {
-                int[] pos = entity.getPosition();
-                if (isInRange(x, y, pos[0], pos[1], range)) {
-                    return (Rabbit) entity;
-                }
+    // Drop entities that are no longer active from the registry and the spatial index
+    public int reapInactive() {
+        List<Entity> removed = entities.removeIf(entity -> !entity.isActive());
+        Journal j = journal;
+        for (Entity entity : removed) {
+            if (entity instanceof Rabbit) {
+                RABBITS_REMOVED.increment();
+            }
+            spatialIndex.remove(entity);
+            if (j != null) {
+                j.remove(entity);
             }
         }
-        return null;
+        return removed.size();
     }
 
-    private boolean isInRange(int x1, int y1, int x2, int y2, int range) {
-        return Math.abs(x2 - x1) <= range && Math.abs(y2 - y1) <= range;
+    // CRC of every cell and of the id, type and position of every active entity; runs with the same
+    // seed and config end with the same fingerprint when they are deterministic
+    public long fingerprint() {
+        byte[] packed = new byte[size * size];
+        cells.copyTo(packed);
+        CRC32 crc = new CRC32();
+        crc.update(packed);
+        List<Entity> active = entities.toList();
+        active.removeIf(entity -> !entity.isActive());
+        active.sort(Comparator.comparingInt(Entity::getId));
+        ByteBuffer record = ByteBuffer.allocate(13);
+        for (Entity entity : active) {
+            record.clear();
+            record.putInt(entity.getId()).put((byte) entity.getType().ordinal())
+                    .putInt(entity.getX()).putInt(entity.getY());
+            crc.update(record.array());
+        }
+        return crc.getValue();
+    }
+
+    // Nearest active rabbit within range, looked up through the spatial index
+    public Rabbit findNearbyRabbit(int x, int y, int range) {
+        return findNearbyRabbit(x, y, range, rabbit -> true);
     }
 
+    // Nearest active rabbit within range that also matches the filter
+    public Rabbit findNearbyRabbit(int x, int y, int range, Predicate<Rabbit> filter) {
+        return (Rabbit) spatialIndex.nearest(x, y, range,
+                entity -> entity instanceof Rabbit && entity.isActive() && filter.test((Rabbit) entity));
+    }
+
+    // Advance every growing cell by one stage; cost scales with the number of growing carrots
     public void updateGrowth() {
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                grid[i][j].grow();
+        synchronized (tickLock) {
+            for (int stripe = 0; stripe < growingStripes.size(); stripe++) {
+                growStripe(stripe);
+            }
+            recordGrowthTick();
+        }
+    }
+
+    // Same as updateGrowth(), with stripes advanced concurrently; returns once every stripe is done
+    public void updateGrowth(ForkJoinPool pool) {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int stripe = 0; stripe < growingStripes.size(); stripe++) {
+            if (!growingStripes.get(stripe).isEmpty()) {
+                int current = stripe;
+                tasks.add(() -> {
+                    growStripe(current);
+                    return null;
+                });
+            }
+        }
+        synchronized (tickLock) {
+            // invokeAll acts as the tick barrier: the next tick cannot start before all stripes finish
+            pool.invokeAll(tasks);
+            recordGrowthTick();
+        }
+    }
+
+    // End of a tick: work leases age by one tick
+    private void recordGrowthTick() {
+        work.tick();
+    }
+
+    // Run an action while no growth tick is in progress; entities keep running
+    public void runBetweenTicks(Runnable action) {
+        synchronized (tickLock) {
+            action.run();
+        }
+    }
+
+    // Start (or with null, stop) journaling changes; call between ticks so no tick is half recorded
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    // While journaling, under the stripe's lock: no cell in it changes meanwhile, so one record saying
+    // every GROWING cell in the stripe grew replays exactly
+    private void growStripe(int stripe) {
+        int firstRow = stripe * STRIPE_ROWS;
+        int endRow = Math.min(firstRow + STRIPE_ROWS, size);
+        boolean anyGrown;
+        Journal j = journal;
+        if (j == null) {
+            anyGrown = growCells(stripe);
+        } else {
+            synchronized (stripeLocks[stripe]) {
+                anyGrown = growCells(stripe);
+                if (anyGrown) {
+                    j.grow(firstRow * size, endRow * size);
+                }
             }
         }
+        if (anyGrown) {
+            // One event for the whole stripe rather than one per growing cell
+            changes.cellsChanged(firstRow * size, endRow * size);
+        }
+    }
+
+    private boolean growCells(int stripe) {
+        Set<Integer> growingCells = growingStripes.get(stripe);
+        List<Integer> replanted = null;
+        boolean anyGrown = false;
+        for (Iterator<Integer> it = growingCells.iterator(); it.hasNext(); ) {
+            int index = it.next();
+            int x = index / size;
+            int y = index % size;
+            boolean grown = cells.grow(x, y);
+            anyGrown |= grown;
+            CellState state = cells.getState(x, y);
+            if (grown && state == CellState.READY) {
+                stats.ripened();
+            }
+            if (state != CellState.GROWING) {
+                // Cells that became READY or were damaged leave the set here rather than in
+                // damage(), which keeps plant() and removal free of ordering races
+                it.remove();
+                if (cells.getState(x, y) == CellState.GROWING) {
+                    if (replanted == null) {
+                        replanted = new ArrayList<>();
+                    }
+                    replanted.add(index);
+                }
+            }
+        }
+        if (replanted != null) {
+            growingCells.addAll(replanted);
+        }
+        return anyGrown;
+    }
+
+    public int getGrowingCount() {
+        int count = 0;
+        for (Set<Integer> stripe : growingStripes) {
+            count += stripe.size();
+        }
+        return count;
     }
-}
\ No newline at end of file
+}
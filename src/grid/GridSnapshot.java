@@ -0,0 +1,131 @@
+package grid;
+
+import entities.EntityType;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Versioned copy of the cells and active entities; never changes while published or pinned. It is taken
+// while entities keep running, so it is not from one exact tick: see CellStorage.copyTo()
+public class GridSnapshot {
+    private final int size;
+    private final byte[] cells;
+    private long version;
+    private int entityCount;
+    private int[] entityIds = new int[16];
+    private byte[] entityTypes = new byte[16];
+    private int[] entityXs = new int[16];
+    private int[] entityYs = new int[16];
+    // Readers holding this snapshot; the publisher only reuses a buffer nobody holds
+    private final AtomicInteger pins = new AtomicInteger();
+
+    GridSnapshot(int size) {
+        this.size = size;
+        this.cells = new byte[size * size];
+    }
+
+    // Start refilling a buffer that is not visible to readers
+    void reset(long version) {
+        this.version = version;
+        entityCount = 0;
+    }
+
+    // Fill from the live grid
+    void capture(Grid grid) {
+        grid.copyCells(cells);
+        captureEntities(grid);
+    }
+
+    // Bring a buffer that was filled earlier up to date: only the given cells are read again. Entities
+    // are listed afresh; there are few next to the cells, and most of them move between two publishes
+    void update(Grid grid, BitSet changed) {
+        for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+            cells[i] = (byte) grid.readCell(i / size, i % size);
+        }
+        captureEntities(grid);
+    }
+
+    private void captureEntities(Grid grid) {
+        grid.forEachEntity(entity -> {
+            if (entity.isActive()) {
+                addEntity(entity.getId(), entity.getType(), entity.getX(), entity.getY());
+            }
+        });
+    }
+
+    // For publisher sources assembling a snapshot from elsewhere, e.g. from several shards: copy in
+    // the cells of an area, laid out as described in Area
+    public void putCells(Area area, byte[] src) {
+        for (int row = 0; row < area.getWidth(); row++) {
+            System.arraycopy(src, row * area.getHeight(), cells,
+                    (area.getX() + row) * size + area.getY(), area.getHeight());
+        }
+    }
+
+    // For publisher sources, as putCells()
+    public void addEntity(int id, EntityType type, int x, int y) {
+        if (entityCount == entityIds.length) {
+            int capacity = entityCount * 2;
+            entityIds = Arrays.copyOf(entityIds, capacity);
+            entityTypes = Arrays.copyOf(entityTypes, capacity);
+            entityXs = Arrays.copyOf(entityXs, capacity);
+            entityYs = Arrays.copyOf(entityYs, capacity);
+        }
+        entityIds[entityCount] = id;
+        entityTypes[entityCount] = (byte) type.ordinal();
+        entityXs[entityCount] = x;
+        entityYs[entityCount] = y;
+        entityCount++;
+    }
+
+    void pin() {
+        pins.incrementAndGet();
+    }
+
+    boolean isPinned() {
+        return pins.get() > 0;
+    }
+
+    // Give the snapshot back once the reader no longer needs it
+    public void release() {
+        pins.decrementAndGet();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    // Packed cell value, decode with CellStorage.stateOf/stageOf
+    public int cellAt(int x, int y) {
+        return cells[x * size + y];
+    }
+
+    // Copy every packed cell into dest, indexed x * size + y
+    public void copyCells(byte[] dest) {
+        System.arraycopy(cells, 0, dest, 0, cells.length);
+    }
+
+    public int getEntityCount() {
+        return entityCount;
+    }
+
+    public int entityId(int i) {
+        return entityIds[i];
+    }
+
+    public EntityType entityType(int i) {
+        return EntityType.of(entityTypes[i]);
+    }
+
+    public int entityX(int i) {
+        return entityXs[i];
+    }
+
+    public int entityY(int i) {
+        return entityYs[i];
+    }
+}
@@ -0,0 +1,183 @@
+package grid;
+
+import entities.Entity;
+import entities.EntityType;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Append-only log of cell transitions and entity spawns/removals, replayed on top of a checkpoint.
+// Records are buffered in memory and written out by flush(), so appending never touches the disk.
+// A cell record holds the value the cell ended up with, not the operation, so replaying one that the
+// checkpoint already contains changes nothing; Grid appends it in the same step as the change.
+public class Journal {
+    private static final int MAGIC = 0x43464a4c; // "CFJL"
+    private static final byte SPAWN = 6;
+    private static final byte REMOVE = 7;
+    private static final byte CELL = 8;
+    private static final byte GROW = 9;
+    private static final int INITIAL_BUFFER = 64 * 1024;
+
+    // Receives the records of a journal segment in the order they were appended
+    public interface Visitor {
+        // The cell now holds value, packed as in CellStorage.pack()
+        void cell(int index, int value);
+
+        // Every GROWING cell with an index from up to, not including, to grew one stage
+        void grow(int from, int to);
+
+        void spawn(int id, EntityType type, int x, int y);
+
+        void remove(int id);
+    }
+
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER);
+    private FileChannel channel;
+    // Previous segment and its last records, written out by the next flush() after a rotate()
+    private FileChannel retired;
+    private ByteBuffer retiredRecords;
+
+    public Journal(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    // Create a new, empty journal segment ready to be passed to the constructor or rotate()
+    public static FileChannel openSegment(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(4).putInt(MAGIC);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        return channel;
+    }
+
+    synchronized void cell(int index, int value) {
+        reserve(6).put(CELL).putInt(index).put((byte) value);
+    }
+
+    synchronized void grow(int from, int to) {
+        reserve(9).put(GROW).putInt(from).putInt(to);
+    }
+
+    synchronized void spawn(Entity entity) {
+        reserve(14).put(SPAWN).putInt(entity.getId()).put((byte) entity.getType().ordinal())
+                .putInt(entity.getX()).putInt(entity.getY());
+    }
+
+    synchronized void remove(Entity entity) {
+        reserve(5).put(REMOVE).putInt(entity.getId());
+    }
+
+    private ByteBuffer reserve(int bytes) {
+        if (pending.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(pending.capacity() * 2);
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+        return pending;
+    }
+
+    // Switch appends to a new segment without doing any I/O; the old segment is finished by flush()
+    public synchronized void rotate(FileChannel next) {
+        retired = channel;
+        retiredRecords = pending;
+        channel = next;
+        pending = ByteBuffer.allocate(INITIAL_BUFFER);
+    }
+
+    // Write buffered records to disk; call from a single thread only
+    public void flush() throws IOException {
+        if (retired != null) {
+            write(retired, retiredRecords);
+            retired.force(false);
+            retired.close();
+            retired = null;
+            retiredRecords = null;
+        }
+        ByteBuffer records;
+        synchronized (this) {
+            records = pending;
+            pending = ByteBuffer.allocate(Math.max(INITIAL_BUFFER, records.position()));
+        }
+        write(channel, records);
+        channel.force(false);
+    }
+
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    private static void write(FileChannel channel, ByteBuffer records) throws IOException {
+        records.flip();
+        while (records.hasRemaining()) {
+            channel.write(records);
+        }
+    }
+
+    // Feed every complete record of a segment of a size x size grid to the visitor; a record cut short by a
+    // crash ends the replay. Records are checked against the grid before the visitor sees them, so a
+    // damaged segment fails with an IOException instead of writing out of bounds.
+    public static void replay(Path path, int size, Visitor visitor) throws IOException {
+        ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (records.remaining() < 4 || records.getInt() != MAGIC) {
+            throw new IOException("Not a journal file: " + path);
+        }
+        int cellCount = size * size;
+        try {
+            while (records.hasRemaining()) {
+                byte op = records.get();
+                switch (op) {
+                    case CELL: {
+                        int index = records.getInt();
+                        byte value = records.get();
+                        if (index < 0 || index >= cellCount || !CellStorage.isValid(value)) {
+                            throw corrupt(path, "cell " + index + " = " + value);
+                        }
+                        visitor.cell(index, value);
+                        break;
+                    }
+                    case GROW: {
+                        int from = records.getInt();
+                        int to = records.getInt();
+                        if (from < 0 || from > to || to > cellCount) {
+                            throw corrupt(path, "growth of cells " + from + " to " + to);
+                        }
+                        visitor.grow(from, to);
+                        break;
+                    }
+                    case SPAWN: {
+                        int id = records.getInt();
+                        byte type = records.get();
+                        int x = records.getInt();
+                        int y = records.getInt();
+                        if (type < 0 || type >= EntityType.values().length
+                                || x < 0 || x >= size || y < 0 || y >= size) {
+                            throw corrupt(path, "spawn of type " + type + " at " + x + "," + y);
+                        }
+                        visitor.spawn(id, EntityType.of(type), x, y);
+                        break;
+                    }
+                    case REMOVE:
+                        visitor.remove(records.getInt());
+                        break;
+                    default:
+                        throw corrupt(path, "op " + op);
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            System.out.println("Journal " + path.getFileName() + " ends with a partial record, ignoring it");
+        }
+    }
+
+    private static IOException corrupt(Path path, String record) {
+        return new IOException("Corrupt journal record in " + path + ": " + record);
+    }
+}
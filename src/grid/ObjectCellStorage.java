@@ -0,0 +1,75 @@
+package grid;
+
+// Original backend: one synchronized Cell object per square
+public class ObjectCellStorage implements CellStorage {
+    private final Cell[][] cells;
+
+    public ObjectCellStorage(int size) {
+        this.cells = new Cell[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                cells[i][j] = new Cell();
+            }
+        }
+    }
+
+    @Override
+    public CellState getState(int x, int y) {
+        return cells[x][y].getState();
+    }
+
+    @Override
+    public int getGrowthStage(int x, int y) {
+        return cells[x][y].getGrowthStage();
+    }
+
+    @Override
+    public int read(int x, int y) {
+        return cells[x][y].read();
+    }
+
+    @Override
+    public void copyTo(byte[] dest) {
+        int size = cells.length;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                dest[i * size + j] = (byte) cells[i][j].read();
+            }
+        }
+    }
+
+    @Override
+    public void load(byte[] src) {
+        int size = cells.length;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                cells[i][j].set(src[i * size + j]);
+            }
+        }
+    }
+
+    @Override
+    public boolean compareAndSet(int x, int y, int expected, int next) {
+        return cells[x][y].compareAndSet(expected, next);
+    }
+
+    @Override
+    public boolean plant(int x, int y) {
+        return cells[x][y].plant();
+    }
+
+    @Override
+    public boolean damage(int x, int y) {
+        return cells[x][y].damage();
+    }
+
+    @Override
+    public boolean repair(int x, int y) {
+        return cells[x][y].repair();
+    }
+
+    @Override
+    public boolean grow(int x, int y) {
+        return cells[x][y].grow();
+    }
+}
@@ -0,0 +1,103 @@
+package grid;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import metrics.Counter;
+import metrics.MetricsRegistry;
+
+// Lock-free backend: one byte per cell holding CellStorage.pack(state, stage), updated with CAS
+public class PackedCellStorage implements CellStorage {
+    private static final VarHandle CELLS = MethodHandles.arrayElementVarHandle(byte[].class);
+    private static final byte EMPTY = (byte) CellStorage.pack(CellState.EMPTY, 0);
+    private static final byte GROWING = (byte) CellStorage.pack(CellState.GROWING, 0);
+    private static final byte DAMAGED = (byte) CellStorage.pack(CellState.DAMAGED, 0);
+    // Failed compare-and-sets, i.e. another thread changed the cell mid-update
+    private static final Counter CAS_RETRIES = MetricsRegistry.getInstance().counter("cells.casRetries");
+
+    private final int size;
+    private final byte[] cells;
+
+    public PackedCellStorage(int size) {
+        this.size = size;
+        this.cells = new byte[size * size];
+        // EMPTY packs to zero, so a fresh array is already an empty field
+    }
+
+    private int index(int x, int y) {
+        return x * size + y;
+    }
+
+    @Override
+    public CellState getState(int x, int y) {
+        return CellStorage.stateOf(read(x, y));
+    }
+
+    @Override
+    public int getGrowthStage(int x, int y) {
+        return CellStorage.stageOf(read(x, y));
+    }
+
+    @Override
+    public int read(int x, int y) {
+        return (byte) CELLS.getVolatile(cells, index(x, y));
+    }
+
+    // Bytes never tear, so a bulk copy still yields whole cells. It is not a picture of one moment,
+    // though: cells keep changing while it runs, so cells copied later may be newer than earlier ones.
+    @Override
+    public void copyTo(byte[] dest) {
+        System.arraycopy(cells, 0, dest, 0, cells.length);
+    }
+
+    @Override
+    public void load(byte[] src) {
+        System.arraycopy(src, 0, cells, 0, cells.length);
+        VarHandle.fullFence();
+    }
+
+    @Override
+    public boolean plant(int x, int y) {
+        return CELLS.compareAndSet(cells, index(x, y), EMPTY, GROWING);
+    }
+
+    @Override
+    public boolean damage(int x, int y) {
+        int index = index(x, y);
+        while (true) {
+            byte current = (byte) CELLS.getVolatile(cells, index);
+            if (!CellStorage.isCrop(current)) {
+                return false;
+            }
+            if (CELLS.compareAndSet(cells, index, current, DAMAGED)) {
+                return true;
+            }
+            CAS_RETRIES.increment();
+        }
+    }
+
+    @Override
+    public boolean repair(int x, int y) {
+        return CELLS.compareAndSet(cells, index(x, y), DAMAGED, EMPTY);
+    }
+
+    @Override
+    public boolean compareAndSet(int x, int y, int expected, int next) {
+        return CELLS.compareAndSet(cells, index(x, y), (byte) expected, (byte) next);
+    }
+
+    @Override
+    public boolean grow(int x, int y) {
+        int index = index(x, y);
+        while (true) {
+            byte current = (byte) CELLS.getVolatile(cells, index);
+            if (CellStorage.stateOf(current) != CellState.GROWING) {
+                return false;
+            }
+            byte next = (byte) CellStorage.grown(current);
+            if (CELLS.compareAndSet(cells, index, current, next)) {
+                return true;
+            }
+            CAS_RETRIES.increment();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package grid;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import metrics.Counter;
+import metrics.MetricsRegistry;
+
+// Packed cells split by region: every tile of the layout has its own byte array, so a region's worker
+// only touches its own memory and tiles never share cache lines. Updates are CAS as in PackedCellStorage.
+class RegionCellStorage implements CellStorage {
+    private static final VarHandle CELLS = MethodHandles.arrayElementVarHandle(byte[].class);
+    private static final byte EMPTY = (byte) CellStorage.pack(CellState.EMPTY, 0);
+    private static final byte GROWING = (byte) CellStorage.pack(CellState.GROWING, 0);
+    private static final byte DAMAGED = (byte) CellStorage.pack(CellState.DAMAGED, 0);
+    private static final Counter CAS_RETRIES = MetricsRegistry.getInstance().counter("cells.casRetries");
+
+    private final int size;
+    private final RegionLayout layout;
+    private final byte[][] tiles;
+    // Position of every coordinate inside its tile, so lookups need no division
+    private final int[] offset;
+
+    RegionCellStorage(RegionLayout layout) {
+        this.size = layout.getSize();
+        this.layout = layout;
+        this.tiles = new byte[layout.getRegionCount()][];
+        for (int region = 0; region < tiles.length; region++) {
+            tiles[region] = new byte[layout.width(region) * layout.height(region)];
+        }
+        this.offset = new int[size];
+        for (int i = 0; i < size; i++) {
+            offset[i] = i - layout.startY(layout.regionOf(0, i));
+        }
+    }
+
+    private byte[] tile(int x, int y) {
+        return tiles[layout.regionOf(x, y)];
+    }
+
+    private int index(int x, int y) {
+        return offset[x] * layout.height(layout.regionOf(x, y)) + offset[y];
+    }
+
+    @Override
+    public CellState getState(int x, int y) {
+        return CellStorage.stateOf(read(x, y));
+    }
+
+    @Override
+    public int getGrowthStage(int x, int y) {
+        return CellStorage.stageOf(read(x, y));
+    }
+
+    @Override
+    public int read(int x, int y) {
+        return (byte) CELLS.getVolatile(tile(x, y), index(x, y));
+    }
+
+    // Whole cells, but not all from the same moment, see PackedCellStorage.copyTo()
+    @Override
+    public void copyTo(byte[] dest) {
+        for (int region = 0; region < tiles.length; region++) {
+            int startX = layout.startX(region);
+            int startY = layout.startY(region);
+            int height = layout.height(region);
+            for (int row = 0; row < layout.width(region); row++) {
+                System.arraycopy(tiles[region], row * height, dest, (startX + row) * size + startY, height);
+            }
+        }
+    }
+
+    @Override
+    public void load(byte[] src) {
+        for (int region = 0; region < tiles.length; region++) {
+            int startX = layout.startX(region);
+            int startY = layout.startY(region);
+            int height = layout.height(region);
+            for (int row = 0; row < layout.width(region); row++) {
+                System.arraycopy(src, (startX + row) * size + startY, tiles[region], row * height, height);
+            }
+        }
+        VarHandle.fullFence();
+    }
+
+    @Override
+    public boolean plant(int x, int y) {
+        return CELLS.compareAndSet(tile(x, y), index(x, y), EMPTY, GROWING);
+    }
+
+    @Override
+    public boolean damage(int x, int y) {
+        byte[] tile = tile(x, y);
+        int index = index(x, y);
+        while (true) {
+            byte current = (byte) CELLS.getVolatile(tile, index);
+            if (!CellStorage.isCrop(current)) {
+                return false;
+            }
+            if (CELLS.compareAndSet(tile, index, current, DAMAGED)) {
+                return true;
+            }
+            CAS_RETRIES.increment();
+        }
+    }
+
+    @Override
+    public boolean repair(int x, int y) {
+        return CELLS.compareAndSet(tile(x, y), index(x, y), DAMAGED, EMPTY);
+    }
+
+    @Override
+    public boolean compareAndSet(int x, int y, int expected, int next) {
+        return CELLS.compareAndSet(tile(x, y), index(x, y), (byte) expected, (byte) next);
+    }
+
+    @Override
+    public boolean grow(int x, int y) {
+        byte[] tile = tile(x, y);
+        int index = index(x, y);
+        while (true) {
+            byte current = (byte) CELLS.getVolatile(tile, index);
+            if (CellStorage.stateOf(current) != CellState.GROWING) {
+                return false;
+            }
+            byte next = (byte) CellStorage.grown(current);
+            if (CELLS.compareAndSet(tile, index, current, next)) {
+                return true;
+            }
+            CAS_RETRIES.increment();
+        }
+    }
+}
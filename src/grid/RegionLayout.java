@@ -0,0 +1,84 @@
+package grid;
+
+import config.GameConfig;
+
+// Splits the field into regionsPerSide x regionsPerSide tiles of nearly equal size. Tiles are numbered
+// row by row along x; a tile's eight neighbours are the tiles touching it, corners included.
+public final class RegionLayout {
+    // Handoff slot for entities arriving from a tile that isn't a neighbour, or from outside any tile
+    public static final int EXTERNAL_SLOT = 4;
+    // One slot per neighbour direction plus EXTERNAL_SLOT in the middle
+    public static final int SLOT_COUNT = 9;
+
+    private final int size;
+    private final int perSide;
+    // Tile row (or column) of every coordinate, and the first coordinate of every tile row
+    private final int[] bandOf;
+    private final int[] bandStart;
+
+    public RegionLayout(int size, int perSide) {
+        this.size = size;
+        this.perSide = Math.max(1, Math.min(perSide, size));
+        this.bandOf = new int[size];
+        this.bandStart = new int[this.perSide + 1];
+        for (int i = 0; i < size; i++) {
+            bandOf[i] = (int) ((long) i * this.perSide / size);
+        }
+        for (int band = 0; band <= this.perSide; band++) {
+            bandStart[band] = (int) (((long) band * size + this.perSide - 1) / this.perSide);
+        }
+    }
+
+    // Layout for the config's regionsPerSide, or one tile per scheduler thread (rounded up to a square)
+    public static RegionLayout of(int size, GameConfig config) {
+        int perSide = config.getRegionsPerSide();
+        if (perSide <= 0) {
+            perSide = (int) Math.ceil(Math.sqrt(Math.max(1, config.getSchedulerThreads())));
+        }
+        return new RegionLayout(size, perSide);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getRegionsPerSide() {
+        return perSide;
+    }
+
+    public int getRegionCount() {
+        return perSide * perSide;
+    }
+
+    public int regionOf(int x, int y) {
+        return bandOf[x] * perSide + bandOf[y];
+    }
+
+    // First x of the region's cells and how many rows it has; the same along y for its column
+    public int startX(int region) {
+        return bandStart[region / perSide];
+    }
+
+    public int startY(int region) {
+        return bandStart[region % perSide];
+    }
+
+    public int width(int region) {
+        return bandStart[region / perSide + 1] - startX(region);
+    }
+
+    public int height(int region) {
+        return bandStart[region % perSide + 1] - startY(region);
+    }
+
+    // Which of the receiving region's handoff queues an entity coming from another region goes to:
+    // one per neighbour direction, so each queue has a single producer, or EXTERNAL_SLOT otherwise
+    public int handoffSlot(int from, int to) {
+        int dx = from / perSide - to / perSide;
+        int dy = from % perSide - to % perSide;
+        if (from < 0 || Math.abs(dx) > 1 || Math.abs(dy) > 1) {
+            return EXTERNAL_SLOT;
+        }
+        return (dx + 1) * 3 + (dy + 1);
+    }
+}
@@ -0,0 +1,145 @@
+package grid;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import metrics.Counter;
+import metrics.MetricsRegistry;
+
+// Snapshots of a grid from a small, fixed pool of buffers: one thread publishes, any number of readers
+// acquire without locks. A buffer being reused is brought up to date from the grid's change bus, so a
+// publish only copies the cells that changed since that buffer was last filled.
+public class SnapshotPublisher {
+    // The latest snapshot, one a reader may still hold, and one to fill; beyond that a publish is skipped
+    private static final int MAX_BUFFERS = 3;
+    private static final Counter SKIPPED = MetricsRegistry.getInstance().counter("ui.snapshotSkips");
+
+    private final int size;
+    // Either the grid followed through its change bus, or a source filling every cell of a buffer
+    private final Grid grid;
+    private final Consumer<GridSnapshot> source;
+    private final ChangeTracker tracker;
+    private final AtomicReference<GridSnapshot> latest = new AtomicReference<>();
+    private final List<Buffer> buffers = new ArrayList<>(MAX_BUFFERS);
+    private final BitSet changed = new BitSet();
+    private long version;
+    // Whether the tracker follows the bus yet; only from the first publish, so a publisher nobody uses
+    // leaves the bus idle
+    private boolean following;
+
+    public SnapshotPublisher(Grid grid) {
+        this.size = grid.getSize();
+        this.grid = grid;
+        this.source = null;
+        this.tracker = new ChangeTracker();
+    }
+
+    // Snapshots of a field that isn't one local grid; source must set every cell of the buffer
+    public SnapshotPublisher(int size, Consumer<GridSnapshot> source) {
+        this.size = size;
+        this.grid = null;
+        this.source = source;
+        this.tracker = null;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    // Capture the grid into a free buffer and swap it in as the latest snapshot. If readers still hold
+    // every other buffer nothing is published; the changes are kept for the next call.
+    public void publish() {
+        if (grid != null) {
+            synchronized (this) {
+                if (!following) {
+                    grid.getChanges().subscribe(tracker);
+                    following = true;
+                }
+            }
+            // Outside our lock: the bus calls the tracker while holding its own
+            grid.getChanges().drain();
+        }
+        synchronized (this) {
+            if (tracker != null) {
+                collectChanges();
+            }
+            Buffer target = freeBuffer();
+            if (target == null) {
+                SKIPPED.increment();
+                return;
+            }
+            GridSnapshot snapshot = target.snapshot;
+            snapshot.reset(++version);
+            if (grid == null) {
+                source.accept(snapshot);
+            } else if (target.stale) {
+                snapshot.capture(grid);
+            } else {
+                snapshot.update(grid, target.changed);
+            }
+            target.changed.clear();
+            target.stale = false;
+            latest.set(snapshot);
+        }
+    }
+
+    // Add what changed since the last publish to every buffer's list of cells to re-read
+    private void collectChanges() {
+        changed.clear();
+        boolean resync = tracker.takeInto(changed);
+        for (Buffer buffer : buffers) {
+            if (resync) {
+                buffer.stale = true;
+                buffer.changed.clear();
+            } else if (!buffer.stale) {
+                buffer.changed.or(changed);
+            }
+        }
+    }
+
+    // A buffer that is neither the latest snapshot nor held by a reader, or null if the pool is used up
+    private Buffer freeBuffer() {
+        GridSnapshot current = latest.get();
+        for (Buffer buffer : buffers) {
+            if (buffer.snapshot != current && !buffer.snapshot.isPinned()) {
+                return buffer;
+            }
+        }
+        if (buffers.size() == MAX_BUFFERS) {
+            return null;
+        }
+        Buffer created = new Buffer(new GridSnapshot(size));
+        buffers.add(created);
+        return created;
+    }
+
+    // Latest snapshot pinned for the caller, or null before the first publish; call release() when done
+    public GridSnapshot acquire() {
+        while (true) {
+            GridSnapshot snapshot = latest.get();
+            if (snapshot == null) {
+                return null;
+            }
+            snapshot.pin();
+            // If a publish swapped it out meanwhile it may already be getting overwritten, so retry
+            if (latest.get() == snapshot) {
+                return snapshot;
+            }
+            snapshot.release();
+        }
+    }
+
+    // A pooled snapshot and the cells changed since it was last filled
+    private static final class Buffer {
+        final GridSnapshot snapshot;
+        final BitSet changed = new BitSet();
+        // Filled never or before a resync, so it has to be captured in full
+        boolean stale = true;
+
+        Buffer(GridSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package grid;
+
+import entities.Entity;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// Uniform bucket grid over entity positions, so range queries only touch nearby buckets. The index records
+// which bucket each entity was put in and removes it from that one, so a removal racing a move never looks
+// in the wrong bucket; each entity's changes run one at a time under its entry in bucketOf.
+public class SpatialIndex {
+    static final int BUCKET_SIZE = 8;
+
+    private final int bucketsPerSide;
+    private final AtomicReferenceArray<Set<Entity>> buckets;
+    private final ConcurrentHashMap<Entity, Integer> bucketOf = new ConcurrentHashMap<>();
+
+    public SpatialIndex(int gridSize) {
+        this.bucketsPerSide = (gridSize + BUCKET_SIZE - 1) / BUCKET_SIZE;
+        this.buckets = new AtomicReferenceArray<>(bucketsPerSide * bucketsPerSide);
+    }
+
+    private int bucketIndex(int x, int y) {
+        return (x / BUCKET_SIZE) * bucketsPerSide + (y / BUCKET_SIZE);
+    }
+
+    // Buckets are created on first use so sparse fields stay cheap
+    private Set<Entity> bucket(int index) {
+        Set<Entity> bucket = buckets.get(index);
+        if (bucket == null) {
+            buckets.compareAndSet(index, null, ConcurrentHashMap.newKeySet());
+            bucket = buckets.get(index);
+        }
+        return bucket;
+    }
+
+    public void add(Entity entity, int x, int y) {
+        bucketOf.compute(entity, (e, old) -> {
+            int index = bucketIndex(x, y);
+            if (old != null && old != index) {
+                buckets.get(old).remove(e);
+            }
+            bucket(index).add(e);
+            return index;
+        });
+    }
+
+    public void remove(Entity entity) {
+        bucketOf.computeIfPresent(entity, (e, index) -> {
+            buckets.get(index).remove(e);
+            return null;
+        });
+    }
+
+    // Re-bucket an entity that moved to (x, y); entities that were removed stay out
+    public void move(Entity entity, int x, int y) {
+        int to = bucketIndex(x, y);
+        Integer from = bucketOf.get(entity);
+        if (from == null || from == to) {
+            // Most moves stay within a bucket and take no lock
+            return;
+        }
+        bucketOf.computeIfPresent(entity, (e, index) -> {
+            if (index != to) {
+                buckets.get(index).remove(e);
+                bucket(to).add(e);
+            }
+            return to;
+        });
+    }
+
+    public void clear() {
+        bucketOf.clear();
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, null);
+        }
+    }
+
+    // Visit every entity within Chebyshev distance range of (x, y)
+    public void forEachInRange(int x, int y, int range, Consumer<Entity> action) {
+        int minBx = Math.max(0, (x - range) / BUCKET_SIZE);
+        int maxBx = Math.min(bucketsPerSide - 1, (x + range) / BUCKET_SIZE);
+        int minBy = Math.max(0, (y - range) / BUCKET_SIZE);
+        int maxBy = Math.min(bucketsPerSide - 1, (y + range) / BUCKET_SIZE);
+
+        for (int bx = minBx; bx <= maxBx; bx++) {
+            for (int by = minBy; by <= maxBy; by++) {
+                Set<Entity> bucket = buckets.get(bx * bucketsPerSide + by);
+                for (Entity entity : bucket != null ? bucket : Collections.<Entity>emptySet()) {
+                    if (Math.abs(entity.getX() - x) <= range && Math.abs(entity.getY() - y) <= range) {
+                        action.accept(entity);
+                    }
+                }
+            }
+        }
+    }
+
+    // Closest matching entity within range, or null; ties go to the smaller straight-line distance,
+    // then to the smaller id, so the result doesn't depend on the order buckets are iterated in
+    public Entity nearest(int x, int y, int range, Predicate<Entity> filter) {
+        Entity[] best = new Entity[1];
+        long[] bestScore = {Long.MAX_VALUE};
+        forEachInRange(x, y, range, entity -> {
+            if (!filter.test(entity)) {
+                return;
+            }
+            int dx = Math.abs(entity.getX() - x);
+            int dy = Math.abs(entity.getY() - y);
+            long score = ((long) Math.max(dx, dy) << 32) | (dx * dx + dy * dy);
+            if (score < bestScore[0] || score == bestScore[0] && entity.getId() < best[0].getId()) {
+                bestScore[0] = score;
+                best[0] = entity;
+            }
+        });
+        return best[0];
+    }
+}
@@ -0,0 +1,233 @@
+package grid;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Hands farmers the cells that need them: EMPTY cells to plant and DAMAGED cells to repair, among the
+// cells the grid owns.
+// Cells needing work are bits in one 64-bit mask per 8x8 bucket, kept up to date by the grid's cell
+// transitions. A farmer reserves a cell by setting its bit in a second mask, atomically, so no two
+// farmers ever head for the same cell. Reservations are leases counted in growth ticks: one that isn't
+// renewed in time lapses and the cell is offered again, so a stopped farmer never blocks a cell.
+public class WorkDispatcher {
+    private static final int BUCKET_SIZE = 8;
+    // Rings of buckets searched around a farmer (up to 128 cells away); beyond that it wanders
+    private static final int MAX_SEARCH_RING = 16;
+    // Claim attempts before giving up for this step, when other farmers keep taking the nearest cell
+    private static final int MAX_CLAIM_ATTEMPTS = 4;
+    // Extra growth ticks a lease lasts beyond the delay it was renewed for, to absorb scheduling jitter
+    private static final long LEASE_SLACK_TICKS = 2;
+
+    private final int size;
+    private final int bucketsPerSide;
+    private final CellStorage cells;
+    private final Grid grid;
+    private final AtomicLongArray needsWork;
+    private final AtomicLongArray reserved;
+    private final Map<Integer, Lease> leases = new ConcurrentHashMap<>();
+    // Growth ticks so far, the clock leases run on; advanced by the grid under its tick lock
+    private volatile long tick;
+
+    WorkDispatcher(int size, CellStorage cells, Grid grid) {
+        this.size = size;
+        this.bucketsPerSide = (size + BUCKET_SIZE - 1) / BUCKET_SIZE;
+        this.cells = cells;
+        this.grid = grid;
+        this.needsWork = new AtomicLongArray(bucketsPerSide * bucketsPerSide);
+        this.reserved = new AtomicLongArray(bucketsPerSide * bucketsPerSide);
+        rebuild();
+    }
+
+    private int bucketIndex(int x, int y) {
+        return (x / BUCKET_SIZE) * bucketsPerSide + (y / BUCKET_SIZE);
+    }
+
+    private static long bit(int x, int y) {
+        return 1L << ((x % BUCKET_SIZE) * BUCKET_SIZE + (y % BUCKET_SIZE));
+    }
+
+    private static boolean needsWork(CellState state) {
+        return state == CellState.EMPTY || state == CellState.DAMAGED;
+    }
+
+    // Recompute every bit from the cells and drop all reservations, e.g. after a load
+    void rebuild() {
+        leases.clear();
+        long[] masks = new long[needsWork.length()];
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                if (grid.owns(x, y) && needsWork(CellStorage.stateOf(cells.read(x, y)))) {
+                    masks[bucketIndex(x, y)] |= bit(x, y);
+                }
+            }
+        }
+        for (int i = 0; i < masks.length; i++) {
+            needsWork.set(i, masks[i]);
+            reserved.set(i, 0);
+        }
+    }
+
+    // Bring a cell's bit in line with its state after a transition. Re-reading the state after the
+    // update means a transition racing with this one can't leave the bit stale.
+    void refresh(int x, int y) {
+        int bucket = bucketIndex(x, y);
+        long bit = bit(x, y);
+        while (true) {
+            boolean needed = grid.owns(x, y) && needsWork(cells.getState(x, y));
+            if (needed) {
+                needsWork.getAndAccumulate(bucket, bit, (mask, b) -> mask | b);
+            } else {
+                needsWork.getAndAccumulate(bucket, bit, (mask, b) -> mask & ~b);
+            }
+            if ((grid.owns(x, y) && needsWork(cells.getState(x, y))) == needed) {
+                return;
+            }
+        }
+    }
+
+    // Advance the lease clock by one growth tick and free the cells of leases that ran out
+    void tick() {
+        long now = ++tick;
+        for (Lease lease : leases.values()) {
+            if (lease.lapseIfExpired(now)) {
+                unreserve(lease);
+            }
+        }
+    }
+
+    // Reserve the nearest unreserved cell needing work around (x, y), or null if there is none in range
+    public Lease claim(int ownerId, int x, int y) {
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+            int cell = nearestOpen(x, y);
+            if (cell < 0) {
+                return null;
+            }
+            int cx = cell / size;
+            int cy = cell % size;
+            long bit = bit(cx, cy);
+            long before = reserved.getAndAccumulate(bucketIndex(cx, cy), bit, (mask, b) -> mask | b);
+            if ((before & bit) == 0) {
+                Lease lease = new Lease(ownerId, cx, cy, tick + LEASE_SLACK_TICKS);
+                leases.put(cell, lease);
+                return lease;
+            }
+            // Another farmer reserved it between the search and here; look again
+        }
+        return null;
+    }
+
+    // Number of cells currently reserved
+    public int getLeaseCount() {
+        return leases.size();
+    }
+
+    private void unreserve(Lease lease) {
+        int cell = lease.x * size + lease.y;
+        if (leases.remove(cell, lease)) {
+            reserved.getAndAccumulate(bucketIndex(lease.x, lease.y), bit(lease.x, lease.y), (mask, b) -> mask & ~b);
+        }
+    }
+
+    // Index of the closest open cell by Chebyshev distance (then straight-line distance), or -1
+    private int nearestOpen(int x, int y) {
+        int bx = x / BUCKET_SIZE;
+        int by = y / BUCKET_SIZE;
+        int best = -1;
+        long bestScore = Long.MAX_VALUE;
+        for (int ring = 0; ring <= MAX_SEARCH_RING; ring++) {
+            // No cell in this ring is closer than this, so a match found earlier can't be beaten
+            long minDistance = Math.max(0, (ring - 1) * BUCKET_SIZE + 1);
+            if (best >= 0 && (minDistance << 32) > bestScore) {
+                break;
+            }
+            if (bx - ring < 0 && by - ring < 0 && bx + ring >= bucketsPerSide && by + ring >= bucketsPerSide) {
+                break;
+            }
+            for (int ix = Math.max(0, bx - ring); ix <= Math.min(bucketsPerSide - 1, bx + ring); ix++) {
+                boolean edgeRow = Math.abs(ix - bx) == ring;
+                // Inside the ring only the two end buckets of a row belong to it
+                int step = edgeRow || ring == 0 ? 1 : 2 * ring;
+                for (int iy = by - ring; iy <= by + ring; iy += step) {
+                    if (iy < 0 || iy >= bucketsPerSide) {
+                        continue;
+                    }
+                    int bucket = ix * bucketsPerSide + iy;
+                    long open = needsWork.get(bucket) & ~reserved.get(bucket);
+                    while (open != 0) {
+                        int index = Long.numberOfTrailingZeros(open);
+                        open &= open - 1;
+                        int cx = ix * BUCKET_SIZE + index / BUCKET_SIZE;
+                        int cy = iy * BUCKET_SIZE + index % BUCKET_SIZE;
+                        int dx = Math.abs(cx - x);
+                        int dy = Math.abs(cy - y);
+                        long score = ((long) Math.max(dx, dy) << 32) | (dx * dx + dy * dy);
+                        if (score < bestScore) {
+                            bestScore = score;
+                            best = cx * size + cy;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    // A farmer's reservation of one cell
+    public final class Lease {
+        private final int ownerId;
+        private final int x;
+        private final int y;
+        private long expiresAt;
+        private boolean lapsed;
+
+        private Lease(int ownerId, int x, int y, long expiresAt) {
+            this.ownerId = ownerId;
+            this.x = x;
+            this.y = y;
+            this.expiresAt = expiresAt;
+        }
+
+        public int getOwnerId() {
+            return ownerId;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+
+        // Keep the cell for the next simulated millis; false if the lease already lapsed and the cell
+        // may have gone to someone else
+        public synchronized boolean renew(long millis) {
+            if (lapsed) {
+                return false;
+            }
+            long growthTime = Math.max(1, grid.getConfig().getCarrotGrowthTime());
+            expiresAt = tick + (millis + growthTime - 1) / growthTime + LEASE_SLACK_TICKS;
+            return true;
+        }
+
+        // Give the cell back, once the work is done or abandoned
+        public void release() {
+            synchronized (this) {
+                if (lapsed) {
+                    return;
+                }
+                lapsed = true;
+            }
+            unreserve(this);
+        }
+
+        private synchronized boolean lapseIfExpired(long now) {
+            if (lapsed || expiresAt >= now) {
+                return false;
+            }
+            lapsed = true;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Monotonic event count; striped, so many threads can increment it without contending
+public class Counter implements Metric, CounterMBean {
+    private final LongAdder count = new LongAdder();
+    private long lastCount;
+    private volatile double ratePerSecond;
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long n) {
+        count.add(n);
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    // Events per second over the last sampling interval
+    @Override
+    public double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    @Override
+    public void roll(long intervalNanos) {
+        long current = count.sum();
+        ratePerSecond = (current - lastCount) * 1e9 / intervalNanos;
+        lastCount = current;
+    }
+
+    @Override
+    public String summary() {
+        return String.format("%d (%.1f/s)", getCount(), ratePerSecond);
+    }
+}
@@ -0,0 +1,27 @@
+package metrics;
+
+import java.util.function.LongSupplier;
+
+// Current value of something the simulation already tracks, read on demand
+public class Gauge implements Metric, GaugeMBean {
+    private volatile LongSupplier source;
+
+    Gauge(LongSupplier source) {
+        this.source = source;
+    }
+
+    // Point the gauge at a new source, e.g. when a new simulation replaces the old one
+    void setSource(LongSupplier source) {
+        this.source = source;
+    }
+
+    @Override
+    public long getValue() {
+        return source.getAsLong();
+    }
+
+    @Override
+    public String summary() {
+        return String.valueOf(getValue());
+    }
+}
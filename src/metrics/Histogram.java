@@ -0,0 +1,113 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Distribution of durations in nanoseconds, in power-of-two buckets. Percentiles, mean and max cover the
+// last sampling interval; recording is a couple of atomic adds and never allocates.
+public class Histogram implements Metric, HistogramMBean {
+    private static final int BUCKETS = 64;
+
+    // Bucket i holds values whose highest set bit is bit i - 1 (bucket 0 holds zero)
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+    private volatile long total;
+
+    // Results of the last completed interval
+    private volatile double ratePerSecond;
+    private volatile double meanNanos;
+    private volatile double p50Nanos;
+    private volatile double p99Nanos;
+    private volatile long maxNanos;
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(nanos));
+        count.increment();
+        sum.add(nanos);
+        long currentMax = max.get();
+        while (nanos > currentMax && !max.compareAndSet(currentMax, nanos)) {
+            currentMax = max.get();
+        }
+    }
+
+    // Record the time elapsed since a System.nanoTime() reading
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public void roll(long intervalNanos) {
+        long[] interval = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            interval[i] = buckets.getAndSet(i, 0);
+        }
+        long n = count.sumThenReset();
+        long s = sum.sumThenReset();
+        total += n;
+        ratePerSecond = n * 1e9 / intervalNanos;
+        meanNanos = n == 0 ? 0 : (double) s / n;
+        long intervalMax = max.getAndSet(0);
+        maxNanos = intervalMax;
+        // A bucket bound can lie above anything actually recorded
+        p50Nanos = Math.min(percentile(interval, n, 0.50), intervalMax);
+        p99Nanos = Math.min(percentile(interval, n, 0.99), intervalMax);
+    }
+
+    // Upper bound of the bucket holding the given fraction of values, so accurate to within a factor of two
+    private static double percentile(long[] interval, long n, double fraction) {
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(n * fraction);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += interval[i];
+            if (seen >= rank) {
+                return i == 0 ? 0 : Math.pow(2, i) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public long getCount() {
+        return total + count.sum();
+    }
+
+    @Override
+    public double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return meanNanos / 1e6;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return p50Nanos / 1e6;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return p99Nanos / 1e6;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return maxNanos / 1e6;
+    }
+
+    @Override
+    public String summary() {
+        return String.format("avg %.2f ms, p99 %.2f ms, max %.2f ms (%.0f/s)",
+                getMeanMillis(), getP99Millis(), getMaxMillis(), ratePerSecond);
+    }
+}
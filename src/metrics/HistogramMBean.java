@@ -0,0 +1,15 @@
+package metrics;
+
+public interface HistogramMBean {
+    long getCount();
+
+    double getRatePerSecond();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+}
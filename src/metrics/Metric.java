@@ -0,0 +1,11 @@
+package metrics;
+
+// Anything kept in the MetricsRegistry
+public interface Metric {
+    // One-line human readable value, as shown in the overlay
+    String summary();
+
+    // Called by the registry once per sampling interval
+    default void roll(long intervalNanos) {
+    }
+}
@@ -0,0 +1,126 @@
+package metrics;
+
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Process-wide named metrics, exposed as JMX MBeans under "carrotfarm:type=...,name=..."
+public class MetricsRegistry {
+    private static MetricsRegistry instance;
+    private static final String DOMAIN = "carrotfarm";
+    private static final int SAMPLE_INTERVAL = 1000;
+    private static final String CELL_CLASS = "grid.Cell";
+
+    // Sorted by name, so related metrics list together
+    private final Map<String, Metric> metrics = new ConcurrentSkipListMap<>();
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final Counter monitorBlocks;
+    private final Map<Long, Long> blockedCounts = new HashMap<>();
+    private volatile long blockedOnCells;
+    private long lastSample = System.nanoTime();
+
+    private MetricsRegistry() {
+        monitorBlocks = counter("jvm.monitorBlocks");
+        gauge("jvm.threads", threads::getThreadCount);
+        gauge("cells.blockedThreads", () -> blockedOnCells);
+
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(this::sample, SAMPLE_INTERVAL, SAMPLE_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    public static synchronized MetricsRegistry getInstance() {
+        if (instance == null) {
+            instance = new MetricsRegistry();
+        }
+        return instance;
+    }
+
+    public Counter counter(String name) {
+        return register(name, Counter.class, new Counter());
+    }
+
+    public Histogram histogram(String name) {
+        return register(name, Histogram.class, new Histogram());
+    }
+
+    // Gauges are re-pointed rather than duplicated when registered again under the same name
+    public Gauge gauge(String name, LongSupplier source) {
+        Gauge gauge = register(name, Gauge.class, new Gauge(source));
+        gauge.setSource(source);
+        return gauge;
+    }
+
+    private synchronized <T extends Metric> T register(String name, Class<T> type, T metric) {
+        Metric existing = metrics.get(name);
+        if (existing != null) {
+            if (!type.isInstance(existing)) {
+                throw new IllegalArgumentException("Metric " + name + " is already a " + existing.getClass().getSimpleName());
+            }
+            return type.cast(existing);
+        }
+        metrics.put(name, metric);
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(metric, new ObjectName(DOMAIN + ":type=" + type.getSimpleName() + ",name=" + name));
+        } catch (JMException e) {
+            System.err.println("Failed to register metric " + name + " with JMX: " + e.getMessage());
+        }
+        return metric;
+    }
+
+    public void forEach(BiConsumer<String, Metric> action) {
+        metrics.forEach(action);
+    }
+
+    // Close the current interval for every metric and sample monitor contention
+    private void sample() {
+        long now = System.nanoTime();
+        long interval = Math.max(1, now - lastSample);
+        lastSample = now;
+        sampleMonitors();
+        for (Metric metric : metrics.values()) {
+            metric.roll(interval);
+        }
+    }
+
+    // Count monitor blocks across all threads since the last sample, and threads stuck on a Cell right now.
+    // Blocked counts are per thread and JVM wide, so this covers every monitor, not only the cells.
+    private void sampleMonitors() {
+        ThreadInfo[] infos = threads.getThreadInfo(threads.getAllThreadIds(), 0);
+        long blocks = 0;
+        long onCells = 0;
+        Map<Long, Long> current = new HashMap<>();
+        for (ThreadInfo info : infos) {
+            if (info == null) {
+                continue;
+            }
+            long blocked = info.getBlockedCount();
+            current.put(info.getThreadId(), blocked);
+            blocks += blocked - blockedCounts.getOrDefault(info.getThreadId(), 0L);
+            LockInfo lock = info.getLockInfo();
+            if (info.getThreadState() == Thread.State.BLOCKED && lock != null && CELL_CLASS.equals(lock.getClassName())) {
+                onCells++;
+            }
+        }
+        blockedCounts.clear();
+        blockedCounts.putAll(current);
+        monitorBlocks.add(blocks);
+        blockedOnCells = onCells;
+    }
+}
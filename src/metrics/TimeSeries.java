@@ -0,0 +1,40 @@
+package metrics;
+
+// The latest values of a quantity taken at a fixed interval. A ring buffer of fixed capacity: once full,
+// each new value replaces the oldest, so memory stays the same however long it runs.
+public class TimeSeries {
+    private final long intervalMillis;
+    private final long[] values;
+    private int next;
+    private int count;
+
+    public TimeSeries(long intervalMillis, int capacity) {
+        this.intervalMillis = intervalMillis;
+        this.values = new long[capacity];
+    }
+
+    public synchronized void add(long value) {
+        values[next] = value;
+        next = (next + 1) % values.length;
+        count = Math.min(count + 1, values.length);
+    }
+
+    // Time between two values
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    public int getCapacity() {
+        return values.length;
+    }
+
+    // Copy of the values held, oldest first
+    public synchronized long[] toArray() {
+        long[] copy = new long[count];
+        int start = (next - count + values.length) % values.length;
+        for (int i = 0; i < count; i++) {
+            copy[i] = values[(start + i) % values.length];
+        }
+        return copy;
+    }
+}
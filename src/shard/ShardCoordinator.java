@@ -0,0 +1,349 @@
+package shard;
+
+import config.GameConfig;
+import entities.EntityType;
+import grid.Area;
+import grid.GridSnapshot;
+import grid.SnapshotPublisher;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.MetricsRegistry;
+import shard.ShardProtocol.Crossing;
+import shard.ShardProtocol.Strip;
+
+// Runs one farm as several ShardNode processes. The field is cut into bands along x, one per shard;
+// every tick is a barrier: all shards run it, then the entities that walked over a border and the
+// border cells each shard's neighbours mirror are routed to the shards they concern, and only then
+// does the next tick start. Snapshots from every shard are stitched together for a viewer.
+public class ShardCoordinator implements Closeable {
+    // Rows of neighbour cells each shard mirrors. Entities move at most one cell per step and step at
+    // most every 800 simulated ms, so two rows cover anything that can stray over a border within a tick
+    // of up to 1.6 s before it is handed over.
+    public static final int HALO = 2;
+    private static final Histogram TICK_TIME = MetricsRegistry.getInstance().histogram("shards.tick");
+    private static final Counter CROSSINGS = MetricsRegistry.getInstance().counter("shards.crossings");
+
+    private final ServerSocketChannel server;
+    // Socket file to remove on close, when listening on a Unix-domain socket
+    private final Path socketPath;
+    private final int fieldSize;
+    private final Link[] shards;
+    private final SnapshotPublisher snapshots;
+    private final long[] totals = new long[6];
+    private int tick;
+
+    // Listen on the given port (0 picks a free one) of the loopback interface, or of every interface
+    // when shards run on other machines
+    public ShardCoordinator(int port, boolean loopbackOnly, int shardCount, int fieldSize) throws IOException {
+        this(loopbackOnly ? new InetSocketAddress(InetAddress.getLoopbackAddress(), port) : new InetSocketAddress(port),
+                null, shardCount, fieldSize);
+    }
+
+    // Listen on a Unix-domain socket at socketPath, for shards on this machine only. Ticks are a round trip
+    // to every shard, and this skips the TCP/IP stack on each; a stale socket file left at the path is
+    // replaced.
+    public ShardCoordinator(Path socketPath, int shardCount, int fieldSize) throws IOException {
+        this(UnixDomainSocketAddress.of(socketPath), socketPath, shardCount, fieldSize);
+    }
+
+    private ShardCoordinator(SocketAddress address, Path socketPath, int shardCount, int fieldSize)
+            throws IOException {
+        if (shardCount < 1 || shardCount > fieldSize) {
+            throw new IllegalArgumentException("Need between 1 and " + fieldSize + " shards, got " + shardCount);
+        }
+        if (socketPath != null) {
+            Files.deleteIfExists(socketPath);
+        }
+        this.server = socketPath != null ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+                : ServerSocketChannel.open();
+        try {
+            server.bind(address, shardCount);
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+        this.socketPath = socketPath;
+        this.fieldSize = fieldSize;
+        this.shards = new Link[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            int x0 = (int) ((long) i * fieldSize / shardCount);
+            int x1 = (int) ((long) (i + 1) * fieldSize / shardCount);
+            shards[i] = new Link(i, new Area(x0, 0, x1 - x0, fieldSize));
+        }
+        this.snapshots = new SnapshotPublisher(fieldSize, snapshot -> {
+            for (Link shard : shards) {
+                shard.addTo(snapshot);
+            }
+        });
+    }
+
+    // TCP port listened on, -1 on a Unix-domain socket
+    public int getPort() throws IOException {
+        SocketAddress address = server.getLocalAddress();
+        return address instanceof InetSocketAddress ? ((InetSocketAddress) address).getPort() : -1;
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    // Wait for every shard to connect and hand each its area and share of the farmers, in connection order
+    public void accept(int farmers, GameConfig config, long seed) throws IOException {
+        StringWriter props = new StringWriter();
+        config.toProperties().store(props, null);
+        for (Link shard : shards) {
+            shard.connect(server.accept());
+            DataOutputStream out = shard.out;
+            out.writeByte(ShardProtocol.ASSIGN);
+            out.writeInt(shard.index);
+            out.writeInt(shards.length);
+            out.writeInt(fieldSize);
+            ShardProtocol.writeArea(out, shard.area);
+            out.writeInt(HALO);
+            out.writeInt(farmers / shards.length + (shard.index < farmers % shards.length ? 1 : 0));
+            // Each shard draws its own numbers, reproducibly from the farm's seed
+            out.writeLong(seed + shard.index);
+            out.writeInt(config.getLockstepTickMs());
+            out.writeUTF(props.toString());
+            out.flush();
+        }
+    }
+
+    // Run one tick on every shard and route what crossed borders; with snapshot, also refresh the
+    // stitched snapshot of the whole farm
+    public void tick(boolean snapshot) throws IOException {
+        long start = System.nanoTime();
+        tick++;
+        for (Link shard : shards) {
+            shard.sendTick(tick, snapshot);
+        }
+        for (Link shard : shards) {
+            shard.receiveDone(tick);
+        }
+        Arrays.fill(totals, 0);
+        for (Link shard : shards) {
+            for (int i = 0; i < totals.length; i++) {
+                totals[i] += shard.stats[i];
+            }
+            route(shard);
+        }
+        if (snapshot) {
+            snapshots.publish();
+        }
+        TICK_TIME.recordSince(start);
+    }
+
+    private void route(Link from) {
+        for (Crossing crossing : from.leaving) {
+            Link to = owner(crossing.x, crossing.y);
+            to.arriving.add(crossing);
+            CROSSINGS.increment();
+        }
+        for (Strip strip : from.borders) {
+            for (Link to : shards) {
+                if (to == from) {
+                    continue;
+                }
+                Area mirrored = to.area.expand(HALO, fieldSize);
+                Strip part = strip.clip(mirrored);
+                if (part != null) {
+                    to.halo.add(part);
+                }
+            }
+        }
+    }
+
+    private Link owner(int x, int y) {
+        for (Link shard : shards) {
+            if (shard.area.contains(x, y)) {
+                return shard;
+            }
+        }
+        throw new IllegalStateException("No shard owns " + x + "," + y);
+    }
+
+    // The whole farm as of the last tick that asked for a snapshot; entity ids are made unique by shard
+    public SnapshotPublisher getSnapshots() {
+        return snapshots;
+    }
+
+    // Summed over all shards as of the last tick: planted, ripened, eaten, repaired, rabbits spawned, caught
+    public long[] getTotals() {
+        return totals.clone();
+    }
+
+    // Farmers and rabbits handed from one shard to another so far
+    public long getCrossingCount() {
+        return CROSSINGS.getCount();
+    }
+
+    // CRC of the stitched snapshot's cells and entities, in the same layout as Grid.fingerprint(), so a
+    // one-shard run matches a batch run of the same seed; the same shard count always gives the same value
+    public long fingerprint() {
+        GridSnapshot snapshot = snapshots.acquire();
+        if (snapshot == null) {
+            return 0;
+        }
+        try {
+            byte[] cells = new byte[fieldSize * fieldSize];
+            snapshot.copyCells(cells);
+            CRC32 crc = new CRC32();
+            crc.update(cells);
+            Integer[] order = new Integer[snapshot.getEntityCount()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Integer.compare(snapshot.entityId(a), snapshot.entityId(b)));
+            ByteBuffer record = ByteBuffer.allocate(13);
+            for (int i : order) {
+                record.clear();
+                record.putInt(snapshot.entityId(i)).put((byte) snapshot.entityType(i).ordinal())
+                        .putInt(snapshot.entityX(i)).putInt(snapshot.entityY(i));
+                crc.update(record.array());
+            }
+            return crc.getValue();
+        } finally {
+            snapshot.release();
+        }
+    }
+
+    // Tell every shard to stop and close the connections
+    @Override
+    public void close() throws IOException {
+        for (Link shard : shards) {
+            if (shard.channel != null) {
+                try {
+                    shard.out.writeByte(ShardProtocol.STOP);
+                    shard.out.flush();
+                } catch (IOException e) {
+                    // Already gone
+                }
+                shard.channel.close();
+            }
+        }
+        server.close();
+        if (socketPath != null) {
+            Files.deleteIfExists(socketPath);
+        }
+    }
+
+    // Connection to one shard and what is in flight to and from it
+    private final class Link {
+        final int index;
+        final Area area;
+        SocketChannel channel;
+        DataInputStream in;
+        DataOutputStream out;
+        final long[] stats = new long[6];
+        // From the last DONE
+        List<Crossing> leaving = new ArrayList<>();
+        List<Strip> borders = new ArrayList<>();
+        Strip cells;
+        int entityCount;
+        int[] entityIds = new int[0];
+        byte[] entityTypes = new byte[0];
+        int[] entityXs = new int[0];
+        int[] entityYs = new int[0];
+        // For the next TICK
+        List<Crossing> arriving = new ArrayList<>();
+        List<Strip> halo = new ArrayList<>();
+
+        Link(int index, Area area) {
+            this.index = index;
+            this.area = area;
+        }
+
+        void connect(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            this.in = ShardProtocol.input(channel);
+            this.out = ShardProtocol.output(channel);
+        }
+
+        void sendTick(int tick, boolean snapshot) throws IOException {
+            out.writeByte(ShardProtocol.TICK);
+            out.writeInt(tick);
+            out.writeBoolean(snapshot);
+            ShardProtocol.writeCrossings(out, arriving);
+            ShardProtocol.writeStrips(out, halo);
+            out.flush();
+            arriving = new ArrayList<>();
+            halo = new ArrayList<>();
+        }
+
+        void receiveDone(int tick) throws IOException {
+            ShardProtocol.expect(in, ShardProtocol.DONE);
+            int done = in.readInt();
+            if (done != tick) {
+                throw new IOException("Shard " + index + " finished tick " + done + " instead of " + tick);
+            }
+            for (int i = 0; i < stats.length; i++) {
+                stats[i] = in.readLong();
+            }
+            leaving = ShardProtocol.readCrossings(in);
+            borders = ShardProtocol.readStrips(in);
+            if (in.readBoolean()) {
+                readCells();
+                entityCount = in.readInt();
+                if (entityIds.length < entityCount) {
+                    entityIds = new int[entityCount];
+                    entityTypes = new byte[entityCount];
+                    entityXs = new int[entityCount];
+                    entityYs = new int[entityCount];
+                }
+                for (int i = 0; i < entityCount; i++) {
+                    // Ids are only unique within a shard
+                    entityIds[i] = in.readInt() * shards.length + index;
+                    entityTypes[i] = in.readByte();
+                    entityXs[i] = in.readInt();
+                    entityYs[i] = in.readInt();
+                }
+            }
+        }
+
+        // Either the whole owned strip or patches to the one received before
+        private void readCells() throws IOException {
+            if (in.readByte() == ShardProtocol.CELLS_FULL) {
+                cells = ShardProtocol.readStrip(in);
+                return;
+            }
+            if (cells == null) {
+                throw new IOException("Shard " + index + " sent changed cells before any full snapshot");
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                cells.cells[in.readInt()] = in.readByte();
+            }
+        }
+
+        // Called by the publisher on the thread that called tick(), so nothing changes meanwhile
+        void addTo(GridSnapshot snapshot) {
+            if (cells == null) {
+                snapshot.putCells(area, new byte[area.getCellCount()]);
+                return;
+            }
+            snapshot.putCells(cells.area, cells.cells);
+            for (int i = 0; i < entityCount; i++) {
+                snapshot.addEntity(entityIds[i], EntityType.of(entityTypes[i]), entityXs[i], entityYs[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package shard;
+
+import config.GameConfig;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import ui.ShardViewer;
+
+// Runs one farm split over several processes: starts a coordinator, launches the shard processes on
+// this machine and drives them for a fixed simulated duration.
+//
+//   java -cp bin shard.ShardLauncher [--shards=2] [--size=200] [--farmers=8] [--duration=60000]
+//        [--seed=1] [--timeScale=max] [--port=0] [--unix] [--view] [--external] [key=value]...
+//
+// --view opens a window onto the stitched farm (and paces the run at timeScale, 1 unless given);
+// --unix connects the shards over a Unix-domain socket in a temporary directory instead of TCP;
+// --external starts no processes and waits on every interface for shard.ShardNode processes started
+// by hand, e.g. on other machines, or with --unix on this one. key is any config file key.
+public class ShardLauncher {
+    private int shards = 2;
+    private int fieldSize = 200;
+    private int farmers = 8;
+    private long durationMillis = 60_000;
+    private long seed = 1;
+    private double timeScale = Double.POSITIVE_INFINITY;
+    private boolean timeScaleGiven;
+    private int port;
+    private boolean unix;
+    private boolean view;
+    private boolean external;
+    private final Properties overrides = new Properties();
+
+    public static void main(String[] args) {
+        ShardLauncher launcher = new ShardLauncher();
+        try {
+            launcher.parseArguments(args);
+            launcher.run();
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: shard.ShardLauncher [--shards=N] [--size=N] [--farmers=N] [--duration=ms]"
+                    + " [--seed=N] [--timeScale=X] [--port=N] [--unix] [--view] [--external] [key=value]...");
+            System.exit(2);
+        } catch (IOException | InterruptedException e) {
+            System.err.println("Sharded run failed: " + e);
+            System.exit(1);
+        }
+        if (!launcher.view) {
+            System.exit(0);
+        }
+    }
+
+    private void parseArguments(String[] args) {
+        Properties known = GameConfig.getInstance().toProperties();
+        for (String arg : args) {
+            if (arg.equals("--view")) {
+                view = true;
+                continue;
+            }
+            if (arg.equals("--unix")) {
+                unix = true;
+                continue;
+            }
+            if (arg.equals("--external")) {
+                external = true;
+                continue;
+            }
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected key=value, got '" + arg + "'");
+            }
+            String key = arg.substring(0, eq);
+            String value = arg.substring(eq + 1);
+            switch (key) {
+                case "--shards":
+                    shards = Integer.parseInt(value);
+                    break;
+                case "--size":
+                    fieldSize = Integer.parseInt(value);
+                    break;
+                case "--farmers":
+                    farmers = Integer.parseInt(value);
+                    break;
+                case "--duration":
+                    durationMillis = Long.parseLong(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "--timeScale":
+                    timeScale = value.equalsIgnoreCase("max") ? Double.POSITIVE_INFINITY : Double.parseDouble(value);
+                    timeScaleGiven = true;
+                    break;
+                case "--port":
+                    port = Integer.parseInt(value);
+                    break;
+                default:
+                    if (!known.containsKey(key)) {
+                        throw new IllegalArgumentException("Unknown option or config key '" + key + "'");
+                    }
+                    overrides.setProperty(key, value);
+            }
+        }
+        if (view && !timeScaleGiven) {
+            timeScale = 1.0;
+        }
+    }
+
+    private void run() throws IOException, InterruptedException {
+        GameConfig config = GameConfig.getInstance().copy();
+        config.apply(overrides);
+        List<Process> processes = new ArrayList<>();
+        Path socketDirectory = unix ? Files.createTempDirectory("carrot-farm-shards") : null;
+        Path socketPath = unix ? socketDirectory.resolve("coordinator.sock") : null;
+        try (ShardCoordinator coordinator = unix ? new ShardCoordinator(socketPath, shards, fieldSize)
+                : new ShardCoordinator(port, !external, shards, fieldSize)) {
+            if (external) {
+                System.out.println("Waiting for " + shards + " shards on "
+                        + (unix ? "socket " + socketPath : "port " + coordinator.getPort()));
+            } else {
+                String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+                String[] address = unix ? new String[] {"--unix", socketPath.toString()}
+                        : new String[] {"127.0.0.1", String.valueOf(coordinator.getPort())};
+                for (int i = 0; i < shards; i++) {
+                    processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                            ShardNode.class.getName(), address[0], address[1])
+                            .inheritIO().start());
+                }
+            }
+            coordinator.accept(farmers, config, seed);
+
+            ShardViewer viewer = null;
+            if (view) {
+                viewer = new ShardViewer(coordinator.getSnapshots(),
+                        "Carrot Farm Simulation (" + shards + " shards)");
+                viewer.open();
+            }
+            int tickMillis = config.getLockstepTickMs();
+            long ticks = Math.max(1, durationMillis / tickMillis);
+            long start = System.nanoTime();
+            long lastSnapshot = 0;
+            for (long t = 1; t <= ticks; t++) {
+                long now = System.nanoTime();
+                boolean snapshot = t == ticks
+                        || view && now - lastSnapshot >= config.getRefreshRate() * 1_000_000L;
+                if (snapshot) {
+                    lastSnapshot = now;
+                }
+                coordinator.tick(snapshot);
+                if (!Double.isInfinite(timeScale)) {
+                    // Keep simulated time in step with real time
+                    long due = start + Math.round(t * tickMillis * 1_000_000L / timeScale);
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) {
+                        Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                    }
+                }
+            }
+            long wallMillis = (System.nanoTime() - start) / 1_000_000;
+            long[] totals = coordinator.getTotals();
+            System.out.println("Ran " + ticks + " ticks of " + tickMillis + " ms on " + shards + " shards in "
+                    + wallMillis + " ms");
+            System.out.println("planted=" + totals[0] + " ripened=" + totals[1] + " eaten=" + totals[2]
+                    + " repaired=" + totals[3] + " rabbitsSpawned=" + totals[4] + " rabbitsCaught=" + totals[5]
+                    + " crossings=" + coordinator.getCrossingCount());
+            System.out.println("fingerprint=" + Long.toHexString(coordinator.fingerprint()));
+        } finally {
+            for (Process process : processes) {
+                process.waitFor();
+            }
+            if (socketDirectory != null) {
+                Files.deleteIfExists(socketDirectory);
+            }
+        }
+    }
+}
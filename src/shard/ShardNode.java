@@ -0,0 +1,218 @@
+package shard;
+
+import config.ExecutionMode;
+import config.GameConfig;
+import entities.Entity;
+import grid.Area;
+import grid.ChangeTracker;
+import grid.FarmStats;
+import grid.Grid;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Properties;
+import ui.Simulation;
+import shard.ShardProtocol.Crossing;
+import shard.ShardProtocol.Strip;
+
+// One process of a sharded farm. It simulates the area the coordinator assigns it, with the rest of the
+// field as read-only mirror cells, and runs exactly one tick per TICK message in LOCKSTEP mode.
+//
+//   java -cp bin shard.ShardNode <coordinator host> <port>
+//   java -cp bin shard.ShardNode --unix <coordinator socket path>
+public class ShardNode {
+    private final SocketChannel channel;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private Simulation simulation;
+    private Grid grid;
+    private Area owned;
+    // Own cells the neighbours mirror: the bands of halo width along every side that isn't the field edge
+    private final List<Area> borders = new ArrayList<>();
+    private int tickMillis;
+    // Cells changed since the last snapshot, so later snapshots send only those
+    private final ChangeTracker changes = new ChangeTracker();
+    private final BitSet changed = new BitSet();
+
+    public ShardNode(SocketChannel channel) throws IOException {
+        this.channel = channel;
+        this.in = ShardProtocol.input(channel);
+        this.out = ShardProtocol.output(channel);
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: shard.ShardNode <host> <port> | shard.ShardNode --unix <socket path>");
+            System.exit(2);
+        }
+        SocketAddress coordinator = args[0].equals("--unix")
+                ? UnixDomainSocketAddress.of(args[1])
+                : new InetSocketAddress(args[0], Integer.parseInt(args[1]));
+        try (SocketChannel channel = SocketChannel.open(coordinator)) {
+            new ShardNode(channel).run();
+        } catch (IOException | InterruptedException e) {
+            System.err.println("Shard failed: " + e);
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    // Serve the coordinator until it sends STOP
+    public void run() throws IOException, InterruptedException {
+        ShardProtocol.expect(in, ShardProtocol.ASSIGN);
+        assign();
+        try {
+            while (true) {
+                byte type = in.readByte();
+                if (type == ShardProtocol.STOP) {
+                    return;
+                }
+                if (type != ShardProtocol.TICK) {
+                    throw new IOException("Unexpected message " + type);
+                }
+                tick();
+            }
+        } finally {
+            simulation.stopSimulation();
+            channel.close();
+        }
+    }
+
+    private void assign() throws IOException {
+        int index = in.readInt();
+        int shardCount = in.readInt();
+        int fieldSize = in.readInt();
+        owned = ShardProtocol.readArea(in);
+        int halo = in.readInt();
+        int farmers = in.readInt();
+        long seed = in.readLong();
+        tickMillis = in.readInt();
+        Properties props = new Properties();
+        props.load(new StringReader(in.readUTF()));
+
+        GameConfig config = GameConfig.getInstance().copy();
+        config.apply(props);
+        // The coordinator paces the ticks; within one the shard runs as fast as it can
+        config.setExecutionMode(ExecutionMode.LOCKSTEP);
+        config.setLockstepTickMs(tickMillis);
+        config.setTimeScale(Double.POSITIVE_INFINITY);
+        config.setAutosaveInterval(0);
+
+        simulation = new Simulation(fieldSize, farmers, config, seed, owned);
+        simulation.setPublishSnapshots(false);
+        grid = simulation.getGrid();
+        grid.getChanges().subscribe(changes);
+        int x1 = owned.getX() + owned.getWidth();
+        int y1 = owned.getY() + owned.getHeight();
+        int bandW = Math.min(halo, owned.getWidth());
+        int bandH = Math.min(halo, owned.getHeight());
+        if (owned.getX() > 0) {
+            borders.add(new Area(owned.getX(), owned.getY(), bandW, owned.getHeight()));
+        }
+        if (x1 < fieldSize) {
+            borders.add(new Area(x1 - bandW, owned.getY(), bandW, owned.getHeight()));
+        }
+        if (owned.getY() > 0) {
+            borders.add(new Area(owned.getX(), owned.getY(), owned.getWidth(), bandH));
+        }
+        if (y1 < fieldSize) {
+            borders.add(new Area(owned.getX(), y1 - bandH, owned.getWidth(), bandH));
+        }
+        System.out.println("Shard " + index + " of " + shardCount + " owns " + owned);
+    }
+
+    private void tick() throws IOException, InterruptedException {
+        int tick = in.readInt();
+        boolean snapshot = in.readBoolean();
+        for (Crossing crossing : ShardProtocol.readCrossings(in)) {
+            simulation.admit(crossing.type, crossing.x, crossing.y);
+        }
+        for (Strip strip : ShardProtocol.readStrips(in)) {
+            grid.writeHalo(strip.area, strip.cells);
+        }
+
+        simulation.runFor(tickMillis);
+        // Every tick, so the bus's rings don't fill up between snapshots
+        grid.getChanges().drain();
+
+        List<Crossing> leaving = new ArrayList<>();
+        for (Entity entity : simulation.emigrate()) {
+            leaving.add(new Crossing(entity.getType(), entity.getX(), entity.getY()));
+        }
+        List<Strip> strips = new ArrayList<>(borders.size());
+        for (Area border : borders) {
+            byte[] cells = new byte[border.getCellCount()];
+            grid.copyArea(border, cells);
+            strips.add(new Strip(border, cells));
+        }
+
+        out.writeByte(ShardProtocol.DONE);
+        out.writeInt(tick);
+        FarmStats stats = grid.getStats();
+        out.writeLong(stats.getPlanted());
+        out.writeLong(stats.getRipened());
+        out.writeLong(stats.getEaten());
+        out.writeLong(stats.getRepaired());
+        out.writeLong(stats.getRabbitsSpawned());
+        out.writeLong(stats.getRabbitsCaught());
+        ShardProtocol.writeCrossings(out, leaving);
+        ShardProtocol.writeStrips(out, strips);
+        out.writeBoolean(snapshot);
+        if (snapshot) {
+            writeSnapshot();
+        }
+        out.flush();
+    }
+
+    // Own cells, in full the first time and after a resync and otherwise just those that changed, then
+    // every active entity as id, type, x, y
+    private void writeSnapshot() throws IOException {
+        changed.clear();
+        if (changes.takeInto(changed)) {
+            byte[] cells = new byte[owned.getCellCount()];
+            grid.copyArea(owned, cells);
+            out.writeByte(ShardProtocol.CELLS_FULL);
+            ShardProtocol.writeStrip(out, new Strip(owned, cells));
+        } else {
+            writeChangedCells();
+        }
+        List<Entity> active = grid.getEntities();
+        active.removeIf(entity -> !entity.isActive());
+        out.writeInt(active.size());
+        for (Entity entity : active) {
+            out.writeInt(entity.getId());
+            out.writeByte(entity.getType().ordinal());
+            out.writeInt(entity.getX());
+            out.writeInt(entity.getY());
+        }
+    }
+
+    // Changed cells inside the owned area; mirrored halo cells change too but are another shard's to send
+    private void writeChangedCells() throws IOException {
+        int size = grid.getSize();
+        int count = 0;
+        for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+            if (owned.contains(i / size, i % size)) {
+                count++;
+            } else {
+                changed.clear(i);
+            }
+        }
+        out.writeByte(ShardProtocol.CELLS_CHANGED);
+        out.writeInt(count);
+        for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+            int x = i / size;
+            int y = i % size;
+            out.writeInt((x - owned.getX()) * owned.getHeight() + y - owned.getY());
+            out.writeByte(grid.readCell(x, y));
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package shard;
+
+import entities.EntityType;
+import grid.Area;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+// Messages between the coordinator and its shards over one socket per shard, TCP or, with every shard on
+// the coordinator's machine, Unix-domain. A message is a type byte
+// followed by its fields in DataOutput's big-endian encoding; cells travel as packed bytes, one per cell.
+//
+//   ASSIGN  coordinator -> shard  shard index and count, field size, owned area, halo width, farmers,
+//                                 seed, tick length, config as properties text
+//   TICK    coordinator -> shard  tick number, whether to send a snapshot, arriving entities, halo strips
+//   DONE    shard -> coordinator  tick number, stats, leaving entities, border strips, optional snapshot
+//   STOP    coordinator -> shard  shut down
+//
+// A snapshot starts with CELLS_FULL and the owned strip, or with CELLS_CHANGED and only the cells that
+// changed since the shard's previous snapshot as (offset into the owned strip, value) pairs, then lists
+// the active entities.
+final class ShardProtocol {
+    static final byte ASSIGN = 1;
+    static final byte TICK = 2;
+    static final byte DONE = 3;
+    static final byte STOP = 4;
+    static final byte CELLS_FULL = 0;
+    static final byte CELLS_CHANGED = 1;
+
+    private ShardProtocol() {
+    }
+
+    // Buffered streams over a connection; both ends only read or write at a time, so one channel carries both
+    static DataInputStream input(SocketChannel channel) {
+        return new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+    }
+
+    // Each flush() is a whole message the other end waits for, so TCP sends it right away
+    static DataOutputStream output(SocketChannel channel) throws IOException {
+        if (channel.supportedOptions().contains(StandardSocketOptions.TCP_NODELAY)) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        }
+        return new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+    }
+
+    // Read a type byte and fail unless it is the expected one
+    static void expect(DataInput in, byte type) throws IOException {
+        byte actual = in.readByte();
+        if (actual != type) {
+            throw new IOException("Expected message " + type + ", got " + actual);
+        }
+    }
+
+    static void writeArea(DataOutput out, Area area) throws IOException {
+        out.writeInt(area.getX());
+        out.writeInt(area.getY());
+        out.writeInt(area.getWidth());
+        out.writeInt(area.getHeight());
+    }
+
+    static Area readArea(DataInput in) throws IOException {
+        return new Area(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+    }
+
+    // A farmer or rabbit that walked from one shard's area into another's
+    static final class Crossing {
+        final EntityType type;
+        final int x;
+        final int y;
+
+        Crossing(EntityType type, int x, int y) {
+            this.type = type;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    static void writeCrossings(DataOutput out, List<Crossing> crossings) throws IOException {
+        out.writeInt(crossings.size());
+        for (Crossing crossing : crossings) {
+            out.writeByte(crossing.type.ordinal());
+            out.writeInt(crossing.x);
+            out.writeInt(crossing.y);
+        }
+    }
+
+    static List<Crossing> readCrossings(DataInput in) throws IOException {
+        int count = in.readInt();
+        List<Crossing> crossings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            crossings.add(new Crossing(EntityType.of(in.readByte()), in.readInt(), in.readInt()));
+        }
+        return crossings;
+    }
+
+    // Packed cells of an area, laid out as described in Area
+    static final class Strip {
+        final Area area;
+        final byte[] cells;
+
+        Strip(Area area, byte[] cells) {
+            this.area = area;
+            this.cells = cells;
+        }
+
+        // The part of this strip inside another area, or null if none of it is
+        Strip clip(Area to) {
+            Area part = area.intersect(to);
+            if (part == null) {
+                return null;
+            }
+            byte[] clipped = new byte[part.getCellCount()];
+            for (int row = 0; row < part.getWidth(); row++) {
+                int from = (part.getX() - area.getX() + row) * area.getHeight() + part.getY() - area.getY();
+                System.arraycopy(cells, from, clipped, row * part.getHeight(), part.getHeight());
+            }
+            return new Strip(part, clipped);
+        }
+    }
+
+    static void writeStrip(DataOutput out, Strip strip) throws IOException {
+        writeArea(out, strip.area);
+        out.write(strip.cells);
+    }
+
+    static Strip readStrip(DataInput in) throws IOException {
+        Area area = readArea(in);
+        byte[] cells = new byte[area.getCellCount()];
+        in.readFully(cells);
+        return new Strip(area, cells);
+    }
+
+    static void writeStrips(DataOutput out, List<Strip> strips) throws IOException {
+        out.writeInt(strips.size());
+        for (Strip strip : strips) {
+            writeStrip(out, strip);
+        }
+    }
+
+    static List<Strip> readStrips(DataInput in) throws IOException {
+        int count = in.readInt();
+        List<Strip> strips = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            strips.add(readStrip(in));
+        }
+        return strips;
+    }
+}
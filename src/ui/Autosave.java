@@ -0,0 +1,251 @@
+package ui;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import entities.EntityType;
+import grid.CellStorage;
+import grid.Grid;
+import grid.Journal;
+
+// Periodic checkpoints of the grid and entities, plus a journal of every change made in between.
+// Checkpoint N is the state when journal segment N was started, so recovery replays segments N, N+1, ...
+final class Autosave {
+    private static final int FLUSH_INTERVAL = 1000;
+    private static final Pattern FILE_NAME = Pattern.compile("(checkpoint|journal)-(\\d+)\\.(bin|log)");
+
+    private final Grid grid;
+    private final Path directory;
+    private ScheduledExecutorService scheduler;
+    // Only touched on the scheduler thread once started
+    private Journal journal;
+    private long sequence;
+
+    Autosave(Grid grid, Path directory) {
+        this.grid = grid;
+        this.directory = directory;
+    }
+
+    // Take a checkpoint right away and then every intervalSeconds, flushing the journal every second
+    synchronized void start(int intervalSeconds) {
+        if (scheduler != null || intervalSeconds <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "simulation-autosave");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::checkpoint, 0, intervalSeconds, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    // Stop checkpointing and write out the rest of the journal
+    synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler = null;
+        grid.setJournal(null);
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close journal: " + e.getMessage());
+            }
+            journal = null;
+        }
+    }
+
+    private void flush() {
+        try {
+            if (journal != null) {
+                journal.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to write journal: " + e.getMessage());
+        }
+    }
+
+    private void checkpoint() {
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+            long next = Math.max(sequence, latestSequence(directory)) + 1;
+            FileChannel segment = Journal.openSegment(journalPath(directory, next));
+
+            // Start the new segment and copy the field with no growth tick in between, so every tick is
+            // either in the checkpoint or in the segment; cell and entity records replay safely twice.
+            // The copy is our own: a published snapshot can lag behind while the renderer holds buffers.
+            int size = grid.getSize();
+            byte[] cells = new byte[size * size];
+            List<GridFile.SavedEntity> entities = new ArrayList<>();
+            grid.runBetweenTicks(() -> {
+                if (journal == null) {
+                    journal = new Journal(segment);
+                    grid.setJournal(journal);
+                } else {
+                    journal.rotate(segment);
+                }
+                grid.copyCells(cells);
+                grid.forEachEntity(entity -> {
+                    if (entity.isActive()) {
+                        entities.add(new GridFile.SavedEntity(entity.getId(), entity.getType(),
+                                entity.getX(), entity.getY()));
+                    }
+                });
+            });
+            // Finishes the previous segment before its checkpoint successor is written
+            journal.flush();
+
+            GridFile.write(checkpointPath(directory, next), size, cells, entities, p -> { });
+            sequence = next;
+            deleteBefore(next);
+            System.out.println("Autosave checkpoint " + next + " written in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms.");
+        } catch (IOException e) {
+            System.err.println("Autosave failed: " + e.getMessage());
+        }
+    }
+
+    // Older checkpoints and segments are covered by the newest checkpoint
+    private void deleteBefore(long keep) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Matcher m = FILE_NAME.matcher(file.getFileName().toString());
+                if (m.matches() && Long.parseLong(m.group(2)) < keep) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    static boolean hasCheckpoint(Path directory) {
+        try {
+            return latestCheckpoint(directory) > 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Latest checkpoint with the journal segments written after it replayed on top
+    static GridFile.Contents recover(Path directory, int size, DoubleConsumer progress) throws IOException {
+        long checkpoint = latestCheckpoint(directory);
+        if (checkpoint == 0) {
+            throw new IOException("No autosave found in " + directory);
+        }
+        GridFile.Contents contents = GridFile.read(checkpointPath(directory, checkpoint), size,
+                p -> progress.accept(p / 2));
+        Replay replay = new Replay(contents);
+
+        List<Long> segments = new ArrayList<>();
+        for (long n : sequences(directory, "journal")) {
+            if (n >= checkpoint) {
+                segments.add(n);
+            }
+        }
+        Collections.sort(segments);
+        for (int i = 0; i < segments.size(); i++) {
+            Journal.replay(journalPath(directory, segments.get(i)), size, replay);
+            progress.accept(0.5 + 0.5 * (i + 1) / segments.size());
+        }
+        progress.accept(1.0);
+        System.out.println("Recovered checkpoint " + checkpoint + " and " + segments.size() + " journal segments");
+        return new GridFile.Contents(contents.cells, new ArrayList<>(replay.entities.values()));
+    }
+
+    // Applies journal records to the cells and entity list read from a checkpoint
+    private static final class Replay implements Journal.Visitor {
+        private final byte[] cells;
+        private final Map<Integer, GridFile.SavedEntity> entities = new LinkedHashMap<>();
+
+        Replay(GridFile.Contents checkpoint) {
+            this.cells = checkpoint.cells;
+            for (GridFile.SavedEntity entity : checkpoint.entities) {
+                entities.put(entity.id, entity);
+            }
+        }
+
+        @Override
+        public void cell(int index, int value) {
+            cells[index] = (byte) value;
+        }
+
+        @Override
+        public void grow(int from, int to) {
+            for (int i = from; i < to; i++) {
+                cells[i] = (byte) CellStorage.grown(cells[i]);
+            }
+        }
+
+        @Override
+        public void spawn(int id, EntityType type, int x, int y) {
+            entities.putIfAbsent(id, new GridFile.SavedEntity(id, type, x, y));
+        }
+
+        @Override
+        public void remove(int id) {
+            entities.remove(id);
+        }
+    }
+
+    private static long latestCheckpoint(Path directory) throws IOException {
+        long latest = 0;
+        for (long n : sequences(directory, "checkpoint")) {
+            latest = Math.max(latest, n);
+        }
+        return latest;
+    }
+
+    private static long latestSequence(Path directory) throws IOException {
+        long latest = 0;
+        for (long n : sequences(directory, null)) {
+            latest = Math.max(latest, n);
+        }
+        return latest;
+    }
+
+    // Sequence numbers of the checkpoint or journal files in the directory, or of both when kind is null
+    private static List<Long> sequences(Path directory, String kind) throws IOException {
+        List<Long> result = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return result;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Matcher m = FILE_NAME.matcher(file.getFileName().toString());
+                if (m.matches() && (kind == null || kind.equals(m.group(1)))) {
+                    result.add(Long.parseLong(m.group(2)));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Path checkpointPath(Path directory, long n) {
+        return directory.resolve(String.format("checkpoint-%06d.bin", n));
+    }
+
+    private static Path journalPath(Path directory, long n) {
+        return directory.resolve(String.format("journal-%06d.log", n));
+    }
+}
@@ -2,7 +2,9 @@ package ui;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.Properties;
 import config.GameConfig;
+import config.GrowthMode;
 import core.GameObject;
 import entities.*;
 import grid.*;
@@ -15,6 +17,9 @@ public class GameConfigDialog extends JDialog {
     private final JSpinner detectionRangeSpinner;
     private final JSpinner repairTimeSpinner;
     private final JSpinner plantTimeSpinner;
+    private final JCheckBox parallelGrowthCheckBox;
+    private final JComboBox<String> speedComboBox;
+    private static final String[] SPEEDS = {"1x", "2x", "10x", "Max"};
     private boolean cancelled = true;
     private final boolean isInitialSetup;
 
@@ -25,8 +30,8 @@ public class GameConfigDialog extends JDialog {
 
         GameConfig config = GameConfig.getInstance();
 
-        fieldSizeSpinner = new JSpinner(new SpinnerNumberModel(10, 5, 20, 1));
-        farmerCountSpinner = new JSpinner(new SpinnerNumberModel(2, 1, 5, 1));
+        fieldSizeSpinner = new JSpinner(new SpinnerNumberModel(10, 5, 2000, 1));
+        farmerCountSpinner = new JSpinner(new SpinnerNumberModel(2, 1, 1000, 1));
         spawnRateSpinner = new JSpinner(new SpinnerNumberModel(
                 config.getRabbitSpawnRate(), 0.0, 1.0, 0.05));
         growthTimeSpinner = new JSpinner(new SpinnerNumberModel(
@@ -37,6 +42,10 @@ public class GameConfigDialog extends JDialog {
                 config.getFarmerRepairTime(), 500, 10000, 500));
         plantTimeSpinner = new JSpinner(new SpinnerNumberModel(
                 config.getFarmerPlantTime(), 500, 10000, 500));
+        parallelGrowthCheckBox = new JCheckBox("", config.getGrowthMode() == GrowthMode.PARALLEL);
+        speedComboBox = new JComboBox<>(SPEEDS);
+        speedComboBox.setEditable(true);
+        speedComboBox.setSelectedItem(formatSpeed(config.getTimeScale()));
 
         setLayout(new GridBagLayout());
         GridBagConstraints gbc = new GridBagConstraints();
@@ -56,6 +65,8 @@ public class GameConfigDialog extends JDialog {
         addConfigField("Dog Detection Range:", detectionRangeSpinner, isInitialSetup ? 6 : 3, gbc);
         addConfigField("Farmer Repair Time (ms):", repairTimeSpinner, isInitialSetup ? 7 : 4, gbc);
         addConfigField("Farmer Plant Time (ms):", plantTimeSpinner, isInitialSetup ? 8 : 5, gbc);
+        addConfigField("Parallel Growth:", parallelGrowthCheckBox, isInitialSetup ? 9 : 6, gbc);
+        addConfigField("Speed:", speedComboBox, isInitialSetup ? 10 : 7, gbc);
 
         JPanel buttonPanel = new JPanel();
         JButton confirmButton = new JButton(isInitialSetup ? "Start Game" : "Save");
@@ -73,7 +84,7 @@ public class GameConfigDialog extends JDialog {
         buttonPanel.add(cancelButton);
 
         gbc.gridx = 0;
-        gbc.gridy = isInitialSetup ? 9 : 6;
+        gbc.gridy = isInitialSetup ? 11 : 8;
         gbc.gridwidth = 2;
         gbc.anchor = GridBagConstraints.CENTER;
         add(buttonPanel, gbc);
@@ -104,14 +115,43 @@ public class GameConfigDialog extends JDialog {
         add(component, gbc);
     }
 
-    // Save configuration changes
+    // Save configuration changes as one snapshot, so the simulation never runs on half of them
     private void saveConfig() {
         GameConfig config = GameConfig.getInstance();
-        config.setRabbitSpawnRate((Double) spawnRateSpinner.getValue());
-        config.setCarrotGrowthTime((Integer) growthTimeSpinner.getValue());
-        config.setDogDetectionRange((Integer) detectionRangeSpinner.getValue());
-        config.setFarmerRepairTime((Integer) repairTimeSpinner.getValue());
-        config.setFarmerPlantTime((Integer) plantTimeSpinner.getValue());
+        double speed = parseSpeed(String.valueOf(speedComboBox.getSelectedItem()), config.getTimeScale());
+        Properties changes = new Properties();
+        changes.setProperty("rabbitSpawnRate", String.valueOf(spawnRateSpinner.getValue()));
+        changes.setProperty("carrotGrowthTime", String.valueOf(growthTimeSpinner.getValue()));
+        changes.setProperty("dogDetectionRange", String.valueOf(detectionRangeSpinner.getValue()));
+        changes.setProperty("farmerRepairTime", String.valueOf(repairTimeSpinner.getValue()));
+        changes.setProperty("farmerPlantTime", String.valueOf(plantTimeSpinner.getValue()));
+        changes.setProperty("growthMode", (parallelGrowthCheckBox.isSelected() ? GrowthMode.PARALLEL : GrowthMode.SERIAL).name());
+        changes.setProperty("timeScale", Double.isInfinite(speed) ? "max" : String.valueOf(speed));
+        config.apply(changes);
+    }
+
+    private static String formatSpeed(double scale) {
+        if (Double.isInfinite(scale)) {
+            return "Max";
+        }
+        return (scale == Math.rint(scale) ? String.valueOf((long) scale) : String.valueOf(scale)) + "x";
+    }
+
+    // "10x", "0.5" or "Max"; anything else keeps the current speed
+    private static double parseSpeed(String text, double current) {
+        String value = text.trim().toLowerCase();
+        if (value.equals("max")) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if (value.endsWith("x")) {
+            value = value.substring(0, value.length() - 1);
+        }
+        try {
+            double scale = Double.parseDouble(value);
+            return scale > 0 ? scale : current;
+        } catch (NumberFormatException e) {
+            return current;
+        }
     }
 
     // Check if dialog was cancelled
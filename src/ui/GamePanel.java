@@ -0,0 +1,471 @@
+package ui;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.InputEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import config.GameConfig;
+import entities.EntityType;
+import grid.*;
+import metrics.Histogram;
+import metrics.MetricsRegistry;
+
+// Scrollable, zoomable view of the field that only draws what is inside the visible rectangle.
+// Everything is read from published snapshots, so painting never touches the live grid.
+class GamePanel extends JPanel implements Scrollable {
+    // Cell sizes in pixels the zoom steps through
+    private static final int[] ZOOM_LEVELS = {1, 2, 3, 4, 6, 8, 12, 16, 24, 32, 40, 48, 64};
+    // Below this size cells are plotted as flat pixels into a raster instead of drawn as shapes
+    private static final int DETAIL_MIN_CELL_SIZE = 8;
+    private static final int LABEL_MIN_CELL_SIZE = 24;
+    private static final int INITIAL_VIEW_SIZE = 800;
+    private static final byte NOT_RENDERED = -1;
+
+    private static final Color CARROT_COLOR = new Color(255, 140, 0);
+    private static final Color FARMER_COLOR = new Color(30, 144, 255);
+    private static final Color GROWING_COLOR = new Color(92, 236, 92);
+    private static final Font ENTITY_FONT = new Font("Arial", Font.BOLD, 14);
+    private static final String[] STAGE_LABELS = new String[CellStorage.MAX_GROWTH + 1];
+    // Raster colours, growing cells get darker as they approach READY
+    private static final int EMPTY_RGB = 0xFFFFFF;
+    private static final int READY_RGB = CARROT_COLOR.getRGB();
+    private static final int DAMAGED_RGB = 0xC00000;
+    private static final int[] GROWING_RGB = new int[CellStorage.MAX_GROWTH + 1];
+    static {
+        for (int i = 0; i < STAGE_LABELS.length; i++) {
+            STAGE_LABELS[i] = String.valueOf(i);
+            int shade = 236 - i * 25;
+            GROWING_RGB[i] = (92 << 16) | (shade << 8) | 92;
+        }
+    }
+
+    private static final Histogram PAINT_TIME = MetricsRegistry.getInstance().histogram("ui.paintTime");
+    private static final Histogram REFRESH_TIME = MetricsRegistry.getInstance().histogram("ui.refreshTime");
+
+    private final SnapshotPublisher snapshots;
+    // Snapshot currently on screen, pinned until the next one replaces it
+    private GridSnapshot snapshot;
+    // Cells in view when the current snapshot was rendered; null forces a full pass
+    private Rectangle renderedView;
+    private final int fieldSize;
+    private int cellSize;
+    private final SpriteAtlas sprites = new SpriteAtlas();
+
+    // Packed value last drawn for every cell; a cell is only redrawn when its value changes
+    private final byte[] renderedCells;
+    // Detail mode: offscreen layer covering the cells in view, positioned at layerCells
+    private BufferedImage cellLayer;
+    private Rectangle layerCells;
+    // Raster mode: one pixel per cell, written straight into the image's int buffer
+    private BufferedImage raster;
+    private int[] rasterPixels;
+    // Cell index each visible entity was drawn at in the previous frame, by entity id
+    private Map<Integer, Integer> renderedEntities = new HashMap<>();
+
+    // Initialize game panel for the grid behind the publisher
+    GamePanel(SnapshotPublisher snapshots) {
+        this.snapshots = snapshots;
+        this.fieldSize = snapshots.getSize();
+        this.renderedCells = new byte[fieldSize * fieldSize];
+        Arrays.fill(renderedCells, NOT_RENDERED);
+        this.cellSize = fitCellSize(fieldSize, GameConfig.getInstance().getCellSize());
+        setOpaque(true);
+        setPreferredSize(new Dimension(fieldSize * cellSize, fieldSize * cellSize));
+        sprites.loadAsync(spriteSize(cellSize), this::invalidateCells);
+        addMouseWheelListener(this::onMouseWheel);
+    }
+
+    // Largest zoom level that keeps the whole field within the initial view, capped at the configured size
+    private static int fitCellSize(int fieldSize, int maxCellSize) {
+        int fitted = 1;
+        for (int level : ZOOM_LEVELS) {
+            if (level <= maxCellSize && level * fieldSize <= INITIAL_VIEW_SIZE) {
+                fitted = level;
+            }
+        }
+        return fitted;
+    }
+
+    private static int spriteSize(int cellSize) {
+        return cellSize - 2 * (cellSize / 8);
+    }
+
+    // Everything gets redrawn on the next refresh, e.g. after sprites arrive or the zoom changes
+    private void invalidateCells() {
+        Arrays.fill(renderedCells, NOT_RENDERED);
+        cellLayer = null;
+        renderedView = null;
+        repaint();
+    }
+
+    // Step the zoom in (+1) or out (-1), keeping the given panel point under the same cell
+    void zoom(int direction, Point anchor) {
+        int current = Arrays.binarySearch(ZOOM_LEVELS, cellSize);
+        int next = Math.max(0, Math.min(ZOOM_LEVELS.length - 1, current + direction));
+        zoomTo(ZOOM_LEVELS[next], anchor);
+    }
+
+    // Zoom to the largest level that is at most the given cell size, around the centre of the view
+    void setCellSize(int pixels) {
+        int level = ZOOM_LEVELS[0];
+        for (int candidate : ZOOM_LEVELS) {
+            if (candidate <= pixels) {
+                level = candidate;
+            }
+        }
+        zoomTo(level, null);
+    }
+
+    private void zoomTo(int level, Point anchor) {
+        if (level == cellSize) {
+            return;
+        }
+        JViewport viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+        Point viewPosition = viewport != null ? viewport.getViewPosition() : new Point();
+        if (anchor == null) {
+            Rectangle visible = getVisibleRect();
+            anchor = new Point(visible.x + visible.width / 2, visible.y + visible.height / 2);
+        }
+        double anchorCellX = anchor.x / (double) cellSize;
+        double anchorCellY = anchor.y / (double) cellSize;
+
+        cellSize = level;
+        Dimension size = new Dimension(fieldSize * cellSize, fieldSize * cellSize);
+        setPreferredSize(size);
+        setSize(size);
+        invalidateCells();
+        revalidate();
+
+        if (viewport != null) {
+            int x = (int) (anchorCellX * cellSize) - (anchor.x - viewPosition.x);
+            int y = (int) (anchorCellY * cellSize) - (anchor.y - viewPosition.y);
+            Dimension extent = viewport.getExtentSize();
+            x = Math.max(0, Math.min(x, size.width - extent.width));
+            y = Math.max(0, Math.min(y, size.height - extent.height));
+            viewport.setViewPosition(new Point(x, y));
+        }
+        refresh();
+    }
+
+    // Ctrl + wheel zooms around the cursor, the plain wheel still scrolls the enclosing pane
+    private void onMouseWheel(MouseWheelEvent e) {
+        if ((e.getModifiersEx() & InputEvent.CTRL_DOWN_MASK) != 0) {
+            zoom(e.getWheelRotation() < 0 ? 1 : -1, e.getPoint());
+        } else if (getParent() != null) {
+            getParent().dispatchEvent(SwingUtilities.convertMouseEvent(this, e, getParent()));
+        }
+    }
+
+    // Cells intersecting the visible rectangle, clipped to the field
+    private Rectangle visibleCells() {
+        Rectangle visible = getVisibleRect();
+        if (visible.isEmpty()) {
+            visible = new Rectangle(0, 0, fieldSize * cellSize, fieldSize * cellSize);
+        }
+        int x0 = Math.max(0, visible.x / cellSize);
+        int y0 = Math.max(0, visible.y / cellSize);
+        int x1 = Math.min(fieldSize, (visible.x + visible.width + cellSize - 1) / cellSize);
+        int y1 = Math.min(fieldSize, (visible.y + visible.height + cellSize - 1) / cellSize);
+        return new Rectangle(x0, y0, Math.max(0, x1 - x0), Math.max(0, y1 - y0));
+    }
+
+    private boolean isDetailMode() {
+        return cellSize >= DETAIL_MIN_CELL_SIZE;
+    }
+
+    // Pick up the latest snapshot and repaint only the cells that changed or had entities move.
+    // Nothing is done when neither the snapshot version nor the view changed.
+    public void refresh() {
+        long start = System.nanoTime();
+        try {
+            refreshSnapshot();
+        } finally {
+            REFRESH_TIME.recordSince(start);
+        }
+    }
+
+    private void refreshSnapshot() {
+        GridSnapshot next = snapshots.acquire();
+        if (next == null) {
+            return;
+        }
+        Rectangle view = visibleCells();
+        if (snapshot != null && next.getVersion() == snapshot.getVersion() && view.equals(renderedView)) {
+            next.release();
+            return;
+        }
+        if (snapshot != null) {
+            snapshot.release();
+        }
+        snapshot = next;
+        renderedView = view;
+        boolean detail = isDetailMode();
+
+        Graphics2D layer = null;
+        if (detail) {
+            if (cellLayer == null || !view.equals(layerCells)) {
+                // The view moved: start a layer for the new cells and redraw all of them
+                cellLayer = createCellLayer(view);
+                layerCells = view;
+                for (int x = view.x; x < view.x + view.width; x++) {
+                    Arrays.fill(renderedCells, x * fieldSize + view.y, x * fieldSize + view.y + view.height, NOT_RENDERED);
+                }
+                repaint();
+            }
+            layer = cellLayer.createGraphics();
+            layer.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            layer.setFont(ENTITY_FONT);
+        } else if (raster == null) {
+            raster = new BufferedImage(fieldSize, fieldSize, BufferedImage.TYPE_INT_RGB);
+            rasterPixels = ((DataBufferInt) raster.getRaster().getDataBuffer()).getData();
+        }
+
+        for (int x = view.x; x < view.x + view.width; x++) {
+            for (int y = view.y; y < view.y + view.height; y++) {
+                int index = x * fieldSize + y;
+                byte cell = (byte) snapshot.cellAt(x, y);
+                if (cell != renderedCells[index]) {
+                    renderedCells[index] = cell;
+                    if (detail) {
+                        drawCell(layer, (x - view.x) * cellSize, (y - view.y) * cellSize, cell);
+                    } else {
+                        rasterPixels[y * fieldSize + x] = rasterColor(cell);
+                    }
+                    repaintCell(x, y);
+                }
+            }
+        }
+        if (layer != null) {
+            layer.dispose();
+        }
+
+        refreshEntities(view);
+    }
+
+    // Repaint the cells visible entities left or entered since the previous snapshot
+    private void refreshEntities(Rectangle view) {
+        Map<Integer, Integer> currentEntities = new HashMap<>();
+        for (int i = 0; i < snapshot.getEntityCount(); i++) {
+            int x = snapshot.entityX(i);
+            int y = snapshot.entityY(i);
+            if (!view.contains(x, y)) {
+                continue;
+            }
+            int index = x * fieldSize + y;
+            currentEntities.put(snapshot.entityId(i), index);
+            Integer previous = renderedEntities.remove(snapshot.entityId(i));
+            if (previous == null || previous != index) {
+                repaintCell(x, y);
+                if (previous != null) {
+                    repaintCell(previous / fieldSize, previous % fieldSize);
+                }
+            }
+        }
+        // Whatever is left disappeared or moved out of view since the last frame
+        for (int index : renderedEntities.values()) {
+            repaintCell(index / fieldSize, index % fieldSize);
+        }
+        renderedEntities = currentEntities;
+    }
+
+    private BufferedImage createCellLayer(Rectangle cells) {
+        int width = Math.max(1, cells.width * cellSize);
+        int height = Math.max(1, cells.height * cellSize);
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        return gc != null
+                ? gc.createCompatibleImage(width, height, Transparency.OPAQUE)
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+
+    private void repaintCell(int x, int y) {
+        repaint(x * cellSize, y * cellSize, cellSize, cellSize);
+    }
+
+    @Override
+    // Blit the cached cells for the dirty area and draw the entities inside it
+    protected void paintComponent(Graphics g) {
+        long start = System.nanoTime();
+        try {
+            paintCells(g);
+        } finally {
+            PAINT_TIME.recordSince(start);
+        }
+    }
+
+    private void paintCells(Graphics g) {
+        super.paintComponent(g);
+        if (snapshot == null) return;
+
+        Graphics2D g2d = (Graphics2D) g;
+        Rectangle clip = g2d.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+
+        boolean detail = isDetailMode();
+        if (detail && cellLayer != null) {
+            g2d.drawImage(cellLayer, layerCells.x * cellSize, layerCells.y * cellSize, null);
+        } else if (!detail && raster != null) {
+            int x0 = Math.max(0, clip.x / cellSize);
+            int y0 = Math.max(0, clip.y / cellSize);
+            int x1 = Math.min(fieldSize, (clip.x + clip.width + cellSize - 1) / cellSize);
+            int y1 = Math.min(fieldSize, (clip.y + clip.height + cellSize - 1) / cellSize);
+            // Default interpolation is nearest neighbour, so every cell stays a crisp square
+            g2d.drawImage(raster, x0 * cellSize, y0 * cellSize, x1 * cellSize, y1 * cellSize,
+                    x0, y0, x1, y1, null);
+        }
+
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setFont(ENTITY_FONT);
+        for (int i = 0; i < snapshot.getEntityCount(); i++) {
+            int px = snapshot.entityX(i) * cellSize;
+            int py = snapshot.entityY(i) * cellSize;
+            if (clip.intersects(px, py, cellSize, cellSize)) {
+                if (detail) {
+                    drawEntity(g2d, snapshot.entityType(i), snapshot.entityId(i), px, py);
+                } else {
+                    g2d.setColor(markerColor(snapshot.entityType(i)));
+                    g2d.fillRect(px, py, cellSize, cellSize);
+                }
+            }
+        }
+    }
+
+    private static int rasterColor(int cell) {
+        switch (CellStorage.stateOf(cell)) {
+            case GROWING:
+                return GROWING_RGB[CellStorage.stageOf(cell)];
+            case READY:
+                return READY_RGB;
+            case DAMAGED:
+                return DAMAGED_RGB;
+            default:
+                return EMPTY_RGB;
+        }
+    }
+
+    private static Color markerColor(EntityType type) {
+        switch (type) {
+            case FARMER:
+                return FARMER_COLOR;
+            case DOG:
+                return Color.BLACK;
+            default:
+                return Color.MAGENTA;
+        }
+    }
+
+    // Draw a single cell into the cell layer at the given pixel position
+    private void drawCell(Graphics2D g, int px, int py, int cell) {
+        int inset = cellSize / 8;
+        int inner = cellSize - 2 * inset;
+
+        g.setColor(Color.WHITE);
+        g.fillRect(px, py, cellSize, cellSize);
+        g.setColor(Color.LIGHT_GRAY);
+        g.drawRect(px, py, cellSize, cellSize);
+
+        switch (CellStorage.stateOf(cell)) {
+            case EMPTY:
+                break;
+            case GROWING:
+                g.setColor(GROWING_COLOR);
+                g.fillOval(px + inset, py + inset, inner, inner);
+                g.setColor(Color.BLACK);
+                drawCenteredString(g, STAGE_LABELS[CellStorage.stageOf(cell)], px, py);
+                break;
+            case READY:
+                if (!sprites.draw(g, SpriteAtlas.Sprite.CARROT, px + inset, py + inset, inner)) {
+                    g.setColor(CARROT_COLOR);
+                    g.fillOval(px + inset, py + inset, inner, inner);
+                    g.setColor(Color.WHITE);
+                    drawCenteredString(g, "C", px, py);
+                }
+                break;
+            case DAMAGED:
+                g.setColor(Color.RED);
+                g.drawLine(px + inset, py + inset, px + cellSize - inset, py + cellSize - inset);
+                g.drawLine(px + inset, py + cellSize - inset, px + cellSize - inset, py + inset);
+                break;
+        }
+    }
+
+    // Draw an entity; farmers alternate between the two farmer sprites by id
+    private void drawEntity(Graphics2D g, EntityType type, int id, int px, int py) {
+        int inset = cellSize / 8;
+        int inner = cellSize - 2 * inset;
+
+        if (type == EntityType.FARMER) {
+            SpriteAtlas.Sprite sprite = SpriteAtlas.Sprite.FARMER;
+            if (sprites.has(SpriteAtlas.Sprite.FARMER_ALT)
+                    && (!sprites.has(SpriteAtlas.Sprite.FARMER) || (id & 1) == 1)) {
+                sprite = SpriteAtlas.Sprite.FARMER_ALT;
+            }
+            if (!sprites.draw(g, sprite, px + inset, py + inset, inner)) {
+                g.setColor(FARMER_COLOR);
+                g.fillOval(px + inset, py + inset, inner, inner);
+                g.setColor(Color.WHITE);
+                drawCenteredString(g, "F", px, py);
+            }
+        } else if (type == EntityType.DOG) {
+            if (!sprites.draw(g, SpriteAtlas.Sprite.DOG, px + inset, py + inset, inner)) {
+                g.setColor(Color.BLACK);
+                g.fillRect(px + inset, py + inset, inner, inner);
+                g.setColor(Color.WHITE);
+                drawCenteredString(g, "D", px, py);
+            }
+        } else if (type == EntityType.RABBIT) {
+            if (!sprites.draw(g, SpriteAtlas.Sprite.RABBIT, px + inset, py + inset, inner)) {
+                int margin = cellSize / 4;
+                g.setColor(Color.RED);
+                int[] xPoints = {px + cellSize / 2, px + margin, px + cellSize - margin};
+                int[] yPoints = {py + margin, py + cellSize - margin, py + cellSize - margin};
+                g.fillPolygon(xPoints, yPoints, 3);
+                g.setColor(Color.WHITE);
+                drawCenteredString(g, "R", px, py + margin);
+            }
+        }
+    }
+
+    // Draw centered string in a cell; skipped when zoomed too far out to read it
+    private void drawCenteredString(Graphics2D g, String text, int cellX, int cellY) {
+        if (cellSize < LABEL_MIN_CELL_SIZE) {
+            return;
+        }
+        FontMetrics metrics = g.getFontMetrics();
+        int x = cellX + (cellSize - metrics.stringWidth(text)) / 2;
+        int y = cellY + ((cellSize - metrics.getHeight()) / 2) + metrics.getAscent();
+        g.drawString(text, x, y);
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        Dimension preferred = getPreferredSize();
+        return new Dimension(Math.min(preferred.width, INITIAL_VIEW_SIZE), Math.min(preferred.height, INITIAL_VIEW_SIZE));
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return Math.max(cellSize, 8);
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.HORIZONTAL ? visibleRect.width : visibleRect.height;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return false;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+}
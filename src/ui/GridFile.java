@@ -0,0 +1,286 @@
+package ui;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.DoubleConsumer;
+import entities.EntityType;
+import grid.CellStorage;
+
+// Versioned binary save format: a small header, then one packed byte per cell, run-length encoded when that is smaller.
+// Checkpoints append the entities after the cells.
+final class GridFile {
+    static final int MAGIC = 0x43465247; // "CFRG"
+    static final short VERSION = 1;
+    private static final byte FLAG_RLE = 1;
+    private static final byte FLAG_ENTITIES = 2;
+    // type, id, x, y
+    private static final int ENTITY_BYTES = 1 + 4 + 4 + 4;
+    // magic, version, flags, field size, payload length
+    private static final int HEADER_BYTES = 4 + 2 + 1 + 4 + 4;
+    private static final int CHUNK_BYTES = 64 * 1024;
+
+    private GridFile() {
+    }
+
+    // Entity as stored in a file; the id is only meaningful within the file and its journal
+    static final class SavedEntity {
+        final int id;
+        final EntityType type;
+        final int x;
+        final int y;
+
+        SavedEntity(int id, EntityType type, int x, int y) {
+            this.id = id;
+            this.type = type;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    // Everything read back from a file; entities is empty for plain saves
+    static final class Contents {
+        final byte[] cells;
+        final List<SavedEntity> entities;
+
+        Contents(byte[] cells, List<SavedEntity> entities) {
+            this.cells = cells;
+            this.entities = entities;
+        }
+    }
+
+    // True when the file starts with the GridFile magic number
+    static boolean isGridFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // keep reading until four bytes or end of file
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    // Write the cells, and the entities unless null, through a temporary file that replaces the target once complete
+    static void write(Path path, int size, byte[] cells, List<SavedEntity> entities,
+                      DoubleConsumer progress) throws IOException {
+        int rleLength = rleLength(cells);
+        boolean rle = rleLength < cells.length;
+        int payloadLength = rle ? rleLength : cells.length;
+        byte flags = (byte) ((rle ? FLAG_RLE : 0) | (entities != null ? FLAG_ENTITIES : 0));
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_BYTES);
+            buffer.putInt(MAGIC).putShort(VERSION).put(flags).putInt(size).putInt(payloadLength);
+
+            int i = 0;
+            while (i < cells.length) {
+                if (buffer.remaining() < 6) {
+                    flush(channel, buffer);
+                    progress.accept(i / (double) cells.length);
+                }
+                if (rle) {
+                    byte value = cells[i];
+                    int run = 1;
+                    while (i + run < cells.length && cells[i + run] == value) {
+                        run++;
+                    }
+                    buffer.put(value);
+                    putVarInt(buffer, run);
+                    i += run;
+                } else {
+                    int n = Math.min(buffer.remaining(), cells.length - i);
+                    buffer.put(cells, i, n);
+                    i += n;
+                }
+            }
+            if (entities != null) {
+                if (buffer.remaining() < 4) {
+                    flush(channel, buffer);
+                }
+                buffer.putInt(entities.size());
+                for (SavedEntity entity : entities) {
+                    if (buffer.remaining() < ENTITY_BYTES) {
+                        flush(channel, buffer);
+                    }
+                    buffer.put((byte) entity.type.ordinal()).putInt(entity.id).putInt(entity.x).putInt(entity.y);
+                }
+            }
+            flush(channel, buffer);
+            channel.force(false);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        progress.accept(1.0);
+    }
+
+    // Read a field that must be expectedSize on each side
+    static Contents read(Path path, int expectedSize, DoubleConsumer progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            readFully(channel, header);
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a carrot farm save file");
+            }
+            short version = header.getShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported save file version " + version);
+            }
+            byte flags = header.get();
+            boolean rle = (flags & FLAG_RLE) != 0;
+            int size = header.getInt();
+            int payloadLength = header.getInt();
+            if (size != expectedSize) {
+                throw new IOException("Saved field is " + size + "x" + size
+                        + " but the current field is " + expectedSize + "x" + expectedSize);
+            }
+
+            // Lengths come from the file, so check them against it before allocating anything
+            if (payloadLength < 0 || payloadLength > remaining(channel)) {
+                throw new IOException("Corrupt save file: payload of " + payloadLength + " bytes");
+            }
+            ByteBuffer payload = ByteBuffer.allocate(payloadLength);
+            while (payload.position() < payload.capacity()) {
+                int limit = Math.min(payload.capacity(), payload.position() + CHUNK_BYTES);
+                payload.limit(limit);
+                readFully(channel, payload);
+                progress.accept(0.9 * payload.position() / Math.max(1, payloadLength));
+            }
+            payload.flip();
+
+            byte[] cells = new byte[size * size];
+            if (rle) {
+                int i = 0;
+                while (payload.hasRemaining()) {
+                    byte value = payload.get();
+                    int run = getVarInt(payload);
+                    if (run <= 0 || i + run > cells.length) {
+                        throw new IOException("Corrupt run-length data");
+                    }
+                    Arrays.fill(cells, i, i + run, value);
+                    i += run;
+                }
+                if (i != cells.length) {
+                    throw new IOException("Save file is truncated");
+                }
+            } else {
+                if (payloadLength != cells.length) {
+                    throw new IOException("Save file is truncated");
+                }
+                payload.get(cells);
+            }
+            checkCells(cells);
+
+            List<SavedEntity> entities = new ArrayList<>();
+            if ((flags & FLAG_ENTITIES) != 0) {
+                ByteBuffer count = ByteBuffer.allocate(4);
+                readFully(channel, count);
+                int entityCount = count.getInt(0);
+                if (entityCount < 0 || (long) entityCount * ENTITY_BYTES > remaining(channel)) {
+                    throw new IOException("Corrupt save file: " + entityCount + " entities");
+                }
+                ByteBuffer records = ByteBuffer.allocate(entityCount * ENTITY_BYTES);
+                readFully(channel, records);
+                records.flip();
+                while (records.hasRemaining()) {
+                    byte type = records.get();
+                    int id = records.getInt();
+                    int x = records.getInt();
+                    int y = records.getInt();
+                    if (type < 0 || type >= EntityType.values().length || x < 0 || x >= size || y < 0 || y >= size) {
+                        throw new IOException("Corrupt save file: entity " + id + " of type " + type
+                                + " at " + x + "," + y);
+                    }
+                    entities.add(new SavedEntity(id, EntityType.of(type), x, y));
+                }
+            }
+            progress.accept(1.0);
+            return new Contents(cells, entities);
+        }
+    }
+
+    // Reject cell values no cell can hold; a stage past MAX_GROWTH would index past the renderer's tables
+    static void checkCells(byte[] cells) throws IOException {
+        for (int i = 0; i < cells.length; i++) {
+            if (!CellStorage.isValid(cells[i])) {
+                throw new IOException("Corrupt save file: cell " + i + " holds " + cells[i]);
+            }
+        }
+    }
+
+    // Bytes left in the file after the channel's position
+    private static long remaining(FileChannel channel) throws IOException {
+        return channel.size() - channel.position();
+    }
+
+    // Encoded size if the cells were written as (value, run length) pairs
+    private static int rleLength(byte[] cells) {
+        int length = 0;
+        int i = 0;
+        while (i < cells.length) {
+            int run = 1;
+            while (i + run < cells.length && cells[i + run] == cells[i]) {
+                run++;
+            }
+            length += 1 + varIntLength(run);
+            i += run;
+        }
+        return length;
+    }
+
+    private static void putVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int getVarInt(ByteBuffer buffer) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (!buffer.hasRemaining()) {
+                throw new IOException("Save file is truncated");
+            }
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt run-length data");
+    }
+
+    private static int varIntLength(int value) {
+        int length = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Save file is truncated");
+            }
+        }
+    }
+}
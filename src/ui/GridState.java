@@ -1,10 +1,11 @@
 package ui;
 
-import grid.Cell;
 import grid.CellState;
+import grid.CellStorage;
 import grid.Grid;
 import java.io.Serializable;
 
+// Original serialized save format, still read so older save files keep loading; new saves use GridFile
 class GridState implements Serializable {
     private static final long serialVersionUID = 1L;
     private final int size;
@@ -18,38 +19,28 @@ class GridState implements Serializable {
 
         for (int i = 0; i < size; i++) {
             for (int j = 0; j < size; j++) {
-                Cell cell = grid.getCell(i, j);
-                cellStates[i][j] = cell.getState();
-                growthStages[i][j] = cell.getGrowthStage();
+                int cell = grid.readCell(i, j);
+                cellStates[i][j] = CellStorage.stateOf(cell);
+                growthStages[i][j] = CellStorage.stageOf(cell);
             }
         }
     }
 
-    public void applyTo(Grid grid) {
+    public int getSize() {
+        return size;
+    }
+
+    // Packed cell values ready for Grid.loadCells()
+    public byte[] toCells() {
+        byte[] cells = new byte[size * size];
         for (int i = 0; i < size; i++) {
             for (int j = 0; j < size; j++) {
-                Cell cell = grid.getCell(i, j);
-                switch (cellStates[i][j]) {
-                    case EMPTY:
-                        cell.repair();
-                        break;
-                    case GROWING:
-                        cell.plant();
-                        for (int k = 0; k < growthStages[i][j]; k++) {
-                            cell.grow();
-                        }
-                        break;
-                    case READY:
-                        cell.plant();
-                        for (int k = 0; k < 5; k++) {
-                            cell.grow();
-                        }
-                        break;
-                    case DAMAGED:
-                        cell.damage();
-                        break;
-                }
+                CellState state = cellStates[i][j];
+                int stage = state == CellState.GROWING ? growthStages[i][j]
+                        : state == CellState.READY ? CellStorage.MAX_GROWTH : 0;
+                cells[i * size + j] = (byte) CellStorage.pack(state, stage);
             }
         }
+        return cells;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,44 @@
+package ui;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import metrics.MetricsRegistry;
+
+// Translucent list of every registered metric, drawn over the game as the frame's glass pane
+class MetricsOverlay extends JComponent {
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    private static final Color BACKGROUND = new Color(0, 0, 0, 170);
+    private static final int MARGIN = 8;
+    private static final int PADDING = 6;
+
+    MetricsOverlay() {
+        setOpaque(false);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        List<String> lines = new ArrayList<>();
+        MetricsRegistry.getInstance().forEach((name, metric) -> lines.add(String.format("%-22s %s", name, metric.summary())));
+
+        Graphics2D g2d = (Graphics2D) g;
+        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2d.setFont(FONT);
+        FontMetrics fm = g2d.getFontMetrics();
+        int width = 0;
+        for (String line : lines) {
+            width = Math.max(width, fm.stringWidth(line));
+        }
+        int height = lines.size() * fm.getHeight();
+
+        g2d.setColor(BACKGROUND);
+        g2d.fillRoundRect(MARGIN, MARGIN, width + 2 * PADDING, height + 2 * PADDING, 8, 8);
+        g2d.setColor(Color.WHITE);
+        int y = MARGIN + PADDING + fm.getAscent();
+        for (String line : lines) {
+            g2d.drawString(line, MARGIN + PADDING, y);
+            y += fm.getHeight();
+        }
+    }
+}
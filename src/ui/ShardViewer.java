@@ -0,0 +1,42 @@
+package ui;
+
+import config.GameConfig;
+import grid.SnapshotPublisher;
+import java.awt.BorderLayout;
+import javax.swing.JFrame;
+import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+// Read-only window onto a farm simulated elsewhere, e.g. the stitched snapshots of a sharded farm
+public class ShardViewer extends JFrame {
+    private final GamePanel gamePanel;
+    private final Timer refreshTimer;
+
+    public ShardViewer(SnapshotPublisher snapshots, String title) {
+        this.gamePanel = new GamePanel(snapshots);
+        setTitle(title);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        setLayout(new BorderLayout());
+        JScrollPane scrollPane = new JScrollPane(gamePanel);
+        scrollPane.getViewport().addChangeListener(e -> gamePanel.refresh());
+        add(scrollPane, BorderLayout.CENTER);
+        refreshTimer = new Timer(GameConfig.getInstance().getRefreshRate(), e -> gamePanel.refresh());
+        pack();
+        setLocationRelativeTo(null);
+    }
+
+    // Show the window and keep it refreshed; may be called from any thread
+    public void open() {
+        SwingUtilities.invokeLater(() -> {
+            setVisible(true);
+            refreshTimer.start();
+        });
+    }
+
+    @Override
+    public void dispose() {
+        refreshTimer.stop();
+        super.dispose();
+    }
+}
@@ -1,63 +1,151 @@
-
 package ui;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleConsumer;
 import config.GameConfig;
+import config.GrowthMode;
 import core.GameObject;
+import engine.EntityExecutor;
 import entities.*;
 import grid.*;
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.MetricsRegistry;
 public class Simulation {
     private final Grid grid;
-    private final List<Thread> entityThreads;
+    private final GameConfig config;
+    private volatile EntityExecutor executor;
     private final List<Entity> entities;
     private volatile boolean running;
-    private final Random random;
+    // Spawn and farmer placement draws, seeded like the entities' own generators
+    private final SplittableRandom random;
     private final int numFarmers;
-    private Thread growthThread;
+    // Part of the field this simulation runs; farmers and rabbits are placed in it
+    private final Area area;
+    // Entities handed over from other shards, let in at the start of the next lockstep tick; null
+    // unless the simulation runs only part of the field
+    private final ConcurrentLinkedQueue<Arrival> arrivals;
+    private volatile ScheduledExecutorService housekeeping;
+    private final SnapshotPublisher snapshots;
+    private final Autosave autosave;
+    private static final int REAP_INTERVAL = 1000;
+    private static final int HISTORY_INTERVAL = 1000;
+    private final FarmHistory history;
+    private volatile boolean publishSnapshots = true;
+    // Saves and loads run one at a time, off the event dispatch thread
+    private final ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "simulation-io");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Histogram growthTickTime = MetricsRegistry.getInstance().histogram("grid.growthTick");
+    // The same per GrowthMode, so serial and parallel ticks can be compared
+    private final Histogram[] growthTickByMode = new Histogram[GrowthMode.values().length];
+    private final Histogram publishTime = MetricsRegistry.getInstance().histogram("ui.snapshotPublish");
+    private final Counter rabbitsSpawned = MetricsRegistry.getInstance().counter("rabbits.spawned");
 
     public Grid getGrid() {
         return this.grid;
     }
 
+    // Headless runs have no renderer, so they can skip publishing snapshots and leave the grid's change
+    // bus idle; call before startSimulation()
+    public void setPublishSnapshots(boolean publish) {
+        this.publishSnapshots = publish;
+    }
+
+    // Per-second and per-minute counts of the farm's stats while it runs, for the chart
+    public FarmHistory getHistory() {
+        return history;
+    }
+
+    // Immutable views of the grid for the renderer, refreshed at the configured refresh rate
+    public SnapshotPublisher getSnapshots() {
+        return snapshots;
+    }
+
     public Simulation(int fieldSize, int numFarmers) {
-        this.grid = new Grid(fieldSize);
-        this.entityThreads = new ArrayList<>();
+        this(fieldSize, numFarmers, GameConfig.getInstance(), new Random().nextLong());
+        System.out.println("Simulation seed: " + grid.getSeed());
+    }
+
+    // Simulation with its own parameters and seed, independent of the shared GameConfig
+    public Simulation(int fieldSize, int numFarmers, GameConfig config, long seed) {
+        this(fieldSize, numFarmers, config, seed, null);
+    }
+
+    // Simulation of one shard's area of a larger field, or of the whole field if area is null
+    public Simulation(int fieldSize, int numFarmers, GameConfig config, long seed, Area area) {
+        this.config = config;
+        this.grid = new Grid(fieldSize, config, seed);
+        this.area = area != null ? area : Area.field(fieldSize);
+        this.arrivals = area != null ? new ConcurrentLinkedQueue<>() : null;
+        grid.setOwned(this.area);
         this.entities = new ArrayList<>();
-        this.random = new Random();
+        this.random = grid.newRandom(0);
         this.numFarmers = numFarmers;
+        this.snapshots = new SnapshotPublisher(grid);
+        this.history = new FarmHistory(grid.getStats());
+        for (GrowthMode mode : GrowthMode.values()) {
+            growthTickByMode[mode.ordinal()] = MetricsRegistry.getInstance()
+                    .histogram("grid.growthTick." + mode.name().toLowerCase());
+        }
+        this.autosave = new Autosave(grid, getAutosaveDirectory());
 
         initializeFarmers();
-        initializeGrowthThread();
-    }
-
-    // Initialize (but don't start) the growth thread
-    private void initializeGrowthThread() {
-        growthThread = new Thread(() -> {
-            while (running) {
-                try {
-                    Thread.sleep(GameConfig.getInstance().getCarrotGrowthTime());
-                    spawnRabbit();
-                    grid.updateGrowth();
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
-            }
+        registerGauges();
+    }
+
+    // Gauges read the latest simulation, so a new game takes them over
+    private void registerGauges() {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.gauge("entities.live", grid::getEntityCount);
+        metrics.gauge("grid.growingCells", grid::getGrowingCount);
+        metrics.gauge("engine.threads", () -> {
+            EntityExecutor current = executor;
+            return current != null ? current.getThreadCount() : 0;
         });
     }
 
+    // Apply one growth tick in the configured mode and record how long it took
+    private void runGrowthTick() {
+        GrowthMode mode = config.getGrowthMode();
+        long start = System.nanoTime();
+        if (mode == GrowthMode.PARALLEL) {
+            grid.updateGrowth(ForkJoinPool.commonPool());
+        } else {
+            grid.updateGrowth();
+        }
+        long elapsed = System.nanoTime() - start;
+        growthTickTime.record(elapsed);
+        growthTickByMode[mode.ordinal()].record(elapsed);
+    }
+
     // Initialize farmers
     private void initializeFarmers() {
         entities.clear();
-        entityThreads.clear();
 
         for (int i = 0; i < numFarmers; i++) {
             Farmer farmer = new Farmer(
-                    random.nextInt(grid.getSize()),
-                    random.nextInt(grid.getSize()),
+                    area.getX() + random.nextInt(area.getWidth()),
+                    area.getY() + random.nextInt(area.getHeight()),
                     grid
             );
             entities.add(farmer);
@@ -67,88 +155,306 @@ public class Simulation {
 
     // Start threads; if state is loaded -> restart the simulation
     public void startSimulation() {
+        launch();
+        executor.start();
+    }
+
+    // Everything startSimulation() does except starting the executor
+    private void launch() {
         running = true;
 
-        for (Entity entity : entities) {
-            Thread thread = new Thread(entity);
-            entityThreads.add(thread);
-            thread.start();
+        executor = EntityExecutor.create(config, grid.getRegions());
+        // Farmers, their dogs, and any rabbits restored from an autosave, in id order so that event
+        // engines schedule them the same way on every run
+        List<Entity> initial = grid.getEntities();
+        initial.sort(Comparator.comparingInt(Entity::getId));
+        for (Entity entity : initial) {
+            executor.submit(entity);
+        }
+
+        // Growth cycle on the executor's clock: a sleeping thread in real time, an event in EVENT mode
+        executor.scheduleRepeating("growth", config::getCarrotGrowthTime, () -> {
+            spawnRabbit();
+            runGrowthTick();
+        });
+        if (arrivals != null) {
+            // Runs before the tick's entity steps in LOCKSTEP, so arrivals don't depend on timing
+            executor.scheduleRepeating("arrivals", config::getLockstepTickMs, this::letInArrivals);
+        }
+        startHousekeeping();
+        autosave.start(config.getAutosaveInterval());
+    }
+
+    // A farmer or rabbit that walked in from another shard
+    private static final class Arrival {
+        final EntityType type;
+        final int x;
+        final int y;
+
+        Arrival(EntityType type, int x, int y) {
+            this.type = type;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    // Queue a farmer (with a new dog) or rabbit that crossed over from another shard; it starts at the
+    // next tick. Like entities recovered from an autosave it starts afresh: a rabbit restarts its meal.
+    public void admit(EntityType type, int x, int y) {
+        if (arrivals == null) {
+            throw new IllegalStateException("Only a simulation of part of the field admits entities");
+        }
+        arrivals.add(new Arrival(type, x, y));
+    }
+
+    private void letInArrivals() {
+        Arrival arrival;
+        while ((arrival = arrivals.poll()) != null) {
+            if (arrival.type == EntityType.FARMER) {
+                Farmer farmer = new Farmer(arrival.x, arrival.y, grid);
+                entities.add(farmer);
+                grid.addEntity(farmer);
+                executor.submit(farmer);
+                executor.submit(farmer.getCompanion());
+            } else if (arrival.type == EntityType.RABBIT) {
+                Rabbit rabbit = new Rabbit(arrival.x, arrival.y, grid);
+                grid.addEntity(rabbit);
+                executor.submit(rabbit);
+            }
+        }
+    }
+
+    // Remove the farmers (with their dogs) and rabbits that walked out of the area and return them in
+    // id order. Dogs stay with their farmer wherever they are. Call while the clock is held, between
+    // runFor() calls.
+    public List<Entity> emigrate() {
+        List<Entity> leaving = new ArrayList<>();
+        for (Entity entity : grid.getEntities()) {
+            boolean mobile = entity.getType() == EntityType.FARMER || entity.getType() == EntityType.RABBIT;
+            if (mobile && entity.isActive() && !area.contains(entity.getX(), entity.getY())) {
+                leaving.add(entity);
+            }
+        }
+        leaving.sort(Comparator.comparingInt(Entity::getId));
+        for (Entity entity : leaving) {
+            entity.stopRunning();
+            grid.removeEntity(entity);
+            if (entity instanceof Farmer) {
+                // Stopping the farmer stopped its dog too
+                grid.removeEntity(((Farmer) entity).getCompanion());
+                entities.remove(entity);
+            }
+        }
+        return leaving;
+    }
+
+    // Periodically drop rabbits that finished eating or were caught, sample the history and publish
+    // snapshots for the UI
+    private void startHousekeeping() {
+        housekeeping = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "simulation-housekeeping");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeping.scheduleAtFixedRate(grid::reapInactive, REAP_INTERVAL, REAP_INTERVAL, TimeUnit.MILLISECONDS);
+        housekeeping.scheduleAtFixedRate(history::sample, HISTORY_INTERVAL, HISTORY_INTERVAL, TimeUnit.MILLISECONDS);
+        if (!publishSnapshots) {
+            return;
+        }
+        housekeeping.execute(this::publishSnapshot);
+    }
+
+    // Publish, then schedule the next publish with the refresh rate as it is now, so config changes apply
+    private void publishSnapshot() {
+        long start = System.nanoTime();
+        snapshots.publish();
+        publishTime.recordSince(start);
+        ScheduledExecutorService current = housekeeping;
+        if (current != null && !current.isShutdown()) {
+            try {
+                current.schedule(this::publishSnapshot, config.getRefreshRate(), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Simulation stopped meanwhile
+            }
         }
+    }
 
-        if (growthThread == null || !growthThread.isAlive()) {
-            initializeGrowthThread();
+    // Let the given simulated time pass, starting the simulation first if it isn't running. In EVENT and
+    // LOCKSTEP modes the clock then stays at exactly that time until the next call, and at max speed this
+    // takes only as long as the work.
+    public void runFor(long simulatedMillis) throws InterruptedException {
+        if (!running) {
+            launch();
         }
-        growthThread.start();
+        executor.awaitSimulated(simulatedMillis);
     }
 
     // Spawn rabbits with user defined spawn rate
     private void spawnRabbit() {
-        if (random.nextDouble() < GameConfig.getInstance().getRabbitSpawnRate()) {
+        // A shard gets its share of the farm's rabbits
+        double share = (double) area.getCellCount() / ((long) grid.getSize() * grid.getSize());
+        if (random.nextDouble() < config.getRabbitSpawnRate() * share) {
             Rabbit rabbit = new Rabbit(
-                    random.nextInt(grid.getSize()),
-                    random.nextInt(grid.getSize()),
+                    area.getX() + random.nextInt(area.getWidth()),
+                    area.getY() + random.nextInt(area.getHeight()),
                     grid
             );
             grid.addEntity(rabbit);
-            Thread rabbitThread = new Thread(rabbit);
-            entityThreads.add(rabbitThread);
-            rabbitThread.start();
+            executor.submit(rabbit);
+            rabbitsSpawned.increment();
+            grid.getStats().rabbitSpawned();
         }
     }
 
     // Stop the simulation
     public void stopSimulation() {
         running = false;
-        for (Entity entity : entities) {
+        if (housekeeping != null) {
+            housekeeping.shutdownNow();
+            housekeeping = null;
+        }
+        if (executor != null) {
+            executor.stopRepeating();
+        }
+        // Growth cycle has stopped, so no more rabbits get submitted
+        for (Entity entity : grid.getEntities()) {
             entity.stopRunning();
         }
-        for (Thread thread : entityThreads) {
-            thread.interrupt();
-            try {
-                thread.join(1000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+        autosave.stop();
+    }
+
+    // Save the field to a binary GridFile; progress receives values from 0 to 1
+    public void saveState(String filename, DoubleConsumer progress) throws IOException {
+        long start = System.nanoTime();
+        byte[] cells = new byte[grid.getSize() * grid.getSize()];
+        grid.copyCells(cells);
+        GridFile.write(Paths.get(filename), grid.getSize(), cells, null, progress);
+        System.out.println("Game state saved successfully in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms.");
+    }
+
+    // Load the field from a GridFile, or from the older serialized GridState format, then restart
+    public void loadState(String filename, DoubleConsumer progress) throws IOException {
+        long start = System.nanoTime();
+        Path path = Paths.get(filename);
+        byte[] cells;
+        if (GridFile.isGridFile(path)) {
+            cells = GridFile.read(path, grid.getSize(), progress).cells;
+        } else {
+            cells = readLegacyState(path);
+            progress.accept(1.0);
+        }
+
+        stopSimulation();
+        grid.clearEntities();
+        grid.loadCells(cells);
+        initializeFarmers();
+        System.out.println("Game state loaded successfully in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms.");
+        startSimulation();
+    }
+
+    private byte[] readLegacyState(Path path) throws IOException {
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            GridState state = (GridState) ois.readObject();
+            if (state.getSize() != grid.getSize()) {
+                throw new IOException("Saved field is " + state.getSize() + "x" + state.getSize()
+                        + " but the current field is " + grid.getSize() + "x" + grid.getSize());
             }
+            byte[] cells = state.toCells();
+            GridFile.checkCells(cells);
+            return cells;
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Not a carrot farm save file", e);
         }
-        if (growthThread != null) {
-            growthThread.interrupt();
-            try {
-                growthThread.join(1000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+    }
+
+    // Replace the current state with the latest autosave checkpoint and journal, then (re)start.
+    // If nothing can be recovered the current state is kept and the simulation keeps running.
+    public void recover(DoubleConsumer progress) throws IOException {
+        // Closing the journal first puts everything up to now on disk, so this session is recoverable too
+        autosave.stop();
+        GridFile.Contents contents = null;
+        try {
+            contents = Autosave.recover(getAutosaveDirectory(), grid.getSize(), progress);
+        } finally {
+            // Whatever stopped the recovery, the current session goes on being autosaved
+            if (contents == null) {
+                if (running) {
+                    autosave.start(config.getAutosaveInterval());
+                } else {
+                    startSimulation();
+                }
             }
-            growthThread = null;
         }
 
-        entityThreads.clear();
+        stopSimulation();
+        grid.clearEntities();
+        grid.loadCells(contents.cells);
+        restoreEntities(contents.entities);
+        startSimulation();
     }
 
-    // Save game state to file
-    public void saveState(String filename) {
-        GridState state = new GridState(grid);
-
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filename))) {
-            oos.writeObject(state);
-            System.out.println("Game state saved successfully.");
-        } catch (IOException e) {
-            System.err.println("Failed to save game state: " + e.getMessage());
+    private void restoreEntities(List<GridFile.SavedEntity> saved) {
+        entities.clear();
+        int rabbits = 0;
+        for (GridFile.SavedEntity entity : saved) {
+            switch (entity.type) {
+                case FARMER:
+                    Farmer farmer = new Farmer(entity.x, entity.y, grid);
+                    entities.add(farmer);
+                    grid.addEntity(farmer);
+                    break;
+                case RABBIT:
+                    grid.addEntity(new Rabbit(entity.x, entity.y, grid));
+                    rabbits++;
+                    break;
+                case DOG:
+                    // Every farmer brings its own dog
+                    break;
+            }
         }
+        System.out.println("Recovered " + entities.size() + " farmers and " + rabbits + " rabbits from autosave.");
+    }
+
+    // True if there is an autosave from this or an earlier session to recover
+    public boolean hasAutosave() {
+        return Autosave.hasCheckpoint(getAutosaveDirectory());
     }
 
-    // Load game state from file
-    public void loadState(String filename) {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filename))) {
-            GridState loadedState = (GridState) ois.readObject();
+    private Path getAutosaveDirectory() {
+        return Paths.get(config.getAutosaveDirectory());
+    }
 
-            stopSimulation();
-            grid.clearEntities();
+    // Run a save on the I/O thread so the UI stays responsive
+    public CompletableFuture<Void> saveStateAsync(String filename, DoubleConsumer progress) {
+        return runIo(() -> saveState(filename, progress));
+    }
 
-            loadedState.applyTo(this.grid);
-            initializeFarmers();
-            System.out.println("Game state loaded successfully.");
-            startSimulation();
-        } catch (IOException | ClassNotFoundException e) {
-            System.err.println("Failed to load game state: " + e.getMessage());
-        }
+    // Run a load on the I/O thread so the UI stays responsive
+    public CompletableFuture<Void> loadStateAsync(String filename, DoubleConsumer progress) {
+        return runIo(() -> loadState(filename, progress));
+    }
+
+    public CompletableFuture<Void> recoverAsync(DoubleConsumer progress) {
+        return runIo(() -> recover(progress));
+    }
+
+    private interface IoTask {
+        void run() throws IOException;
+    }
+
+    private CompletableFuture<Void> runIo(IoTask task) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                task.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, io);
     }
-}
\ No newline at end of file
+}
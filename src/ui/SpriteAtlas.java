@@ -0,0 +1,129 @@
+package ui;
+
+import javax.imageio.ImageIO;
+import javax.swing.SwingWorker;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+// Loads the img/ sprites in the background and serves them pre-scaled, one atlas image per sprite size
+class SpriteAtlas {
+    enum Sprite {
+        RABBIT("rabbit.jpg"),
+        FARMER("farmer.jpg"),
+        FARMER_ALT("farmer1.jpg"),
+        CARROT("carrot.png"),
+        DOG("dog.jpg");
+
+        private final String fileName;
+
+        Sprite(String fileName) {
+            this.fileName = fileName;
+        }
+    }
+
+    private static final String IMAGE_DIR = "./img/";
+    private static final Sprite[] SPRITES = Sprite.values();
+
+    // Full-size images as read from disk; null until loading finishes, entries null if missing
+    private volatile BufferedImage[] sources;
+    // Pre-scaled atlases by sprite size, touched on the EDT only
+    private final Map<Integer, BufferedImage> atlases = new HashMap<>();
+
+    // Read all sprites off the EDT, pre-scale them to spriteSize, then run onReady on the EDT
+    void loadAsync(int spriteSize, Runnable onReady) {
+        new SwingWorker<BufferedImage, Void>() {
+            private BufferedImage[] loaded;
+
+            @Override
+            protected BufferedImage doInBackground() {
+                loaded = new BufferedImage[SPRITES.length];
+                for (Sprite sprite : SPRITES) {
+                    try {
+                        loaded[sprite.ordinal()] = ImageIO.read(new File(IMAGE_DIR + sprite.fileName));
+                        System.out.println(sprite.fileName + " loaded successfully");
+                    } catch (IOException e) {
+                        System.out.println(sprite.fileName + " could not be loaded. Using fallback shape.");
+                    }
+                }
+                return buildAtlas(loaded, spriteSize);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    atlases.put(spriteSize, get());
+                } catch (InterruptedException | ExecutionException e) {
+                    System.err.println("Failed to prepare sprites: " + e.getMessage());
+                }
+                sources = loaded;
+                onReady.run();
+            }
+        }.execute();
+    }
+
+    boolean isReady() {
+        return sources != null;
+    }
+
+    boolean has(Sprite sprite) {
+        BufferedImage[] images = sources;
+        return images != null && images[sprite.ordinal()] != null;
+    }
+
+    // Draw a sprite at the given size; returns false so callers can use their fallback shape
+    boolean draw(Graphics g, Sprite sprite, int x, int y, int size) {
+        BufferedImage[] images = sources;
+        if (images == null || images[sprite.ordinal()] == null || size <= 0) {
+            return false;
+        }
+        BufferedImage atlas = atlases.computeIfAbsent(size, s -> buildAtlas(images, s));
+        int sx = sprite.ordinal() * size;
+        g.drawImage(atlas, x, y, x + size, y + size, sx, 0, sx + size, size, null);
+        return true;
+    }
+
+    // Lay every sprite out side by side in one display-compatible image
+    private static BufferedImage buildAtlas(BufferedImage[] images, int size) {
+        BufferedImage atlas = createCompatibleImage(SPRITES.length * size, size);
+        Graphics2D g = atlas.createGraphics();
+        for (int i = 0; i < images.length; i++) {
+            if (images[i] != null) {
+                g.drawImage(scale(images[i], size), i * size, 0, null);
+            }
+        }
+        g.dispose();
+        return atlas;
+    }
+
+    // Halve repeatedly before the last bilinear step so large photos downscale without aliasing
+    private static BufferedImage scale(BufferedImage image, int size) {
+        BufferedImage current = image;
+        int width = image.getWidth();
+        int height = image.getHeight();
+        do {
+            width = Math.max(size, width / 2);
+            height = Math.max(size, height / 2);
+            BufferedImage next = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(current, 0, 0, width, height, null);
+            g.dispose();
+            current = next;
+        } while (width > size || height > size);
+        return current;
+    }
+
+    private static BufferedImage createCompatibleImage(int width, int height) {
+        if (!GraphicsEnvironment.isHeadless()) {
+            GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                    .getDefaultScreenDevice().getDefaultConfiguration();
+            return gc.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+}
@@ -0,0 +1,106 @@
+package ui;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import grid.FarmHistory;
+import grid.FarmHistory.Stat;
+
+// Line chart of a farm's history, one line per stat: events per second over the last five minutes, or
+// per minute over the last four hours. Clicking switches between the two.
+class StatsChart extends JComponent {
+    private static final Font FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 11);
+    private static final Color GRID_COLOR = new Color(220, 220, 220);
+    // In Stat order
+    private static final Color[] COLORS = {
+            new Color(92, 200, 92), new Color(255, 140, 0), new Color(192, 0, 0),
+            new Color(30, 144, 255), Color.GRAY, new Color(160, 60, 200)
+    };
+    private static final int PADDING = 8;
+    private static final int AXIS_WIDTH = 36;
+    private static final int LEGEND_COLUMNS = 3;
+
+    private final FarmHistory history;
+    private boolean minutes;
+
+    StatsChart(FarmHistory history) {
+        this.history = history;
+        setOpaque(true);
+        setPreferredSize(new Dimension(380, 260));
+        setToolTipText("Click to switch between seconds and minutes");
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                minutes = !minutes;
+                repaint();
+            }
+        });
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Stat[] stats = Stat.values();
+        long[][] values = new long[stats.length][];
+        long max = 1;
+        int capacity = minutes ? FarmHistory.MINUTES : FarmHistory.SECONDS;
+        for (Stat stat : stats) {
+            long[] series = (minutes ? history.getPerMinute(stat) : history.getPerSecond(stat)).toArray();
+            values[stat.ordinal()] = series;
+            for (long value : series) {
+                max = Math.max(max, value);
+            }
+        }
+
+        Graphics2D g2d = (Graphics2D) g;
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2d.setFont(FONT);
+        FontMetrics fm = g2d.getFontMetrics();
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(0, 0, getWidth(), getHeight());
+
+        int legendRows = (stats.length + LEGEND_COLUMNS - 1) / LEGEND_COLUMNS;
+        int left = PADDING + AXIS_WIDTH;
+        int top = PADDING + fm.getHeight();
+        int right = getWidth() - PADDING;
+        int bottom = getHeight() - PADDING - legendRows * fm.getHeight() - PADDING;
+        if (right - left < 2 || bottom - top < 2) {
+            return;
+        }
+
+        g2d.setColor(Color.DARK_GRAY);
+        g2d.drawString(minutes ? "Per minute, last 4 hours" : "Per second, last 5 minutes", left, PADDING + fm.getAscent());
+        String maxLabel = Long.toString(max);
+        g2d.drawString(maxLabel, left - 4 - fm.stringWidth(maxLabel), top + fm.getAscent() / 2);
+        g2d.drawString("0", left - 4 - fm.stringWidth("0"), bottom + fm.getAscent() / 2);
+        g2d.setColor(GRID_COLOR);
+        g2d.drawLine(left, top, right, top);
+        g2d.drawLine(left, (top + bottom) / 2, right, (top + bottom) / 2);
+        g2d.drawRect(left, top, right - left, bottom - top);
+
+        // Newest value at the right edge, so the lines scroll left as time passes
+        for (Stat stat : stats) {
+            long[] series = values[stat.ordinal()];
+            int[] xs = new int[series.length];
+            int[] ys = new int[series.length];
+            for (int i = 0; i < series.length; i++) {
+                int slot = capacity - series.length + i;
+                xs[i] = left + (int) ((long) slot * (right - left) / (capacity - 1));
+                ys[i] = bottom - (int) (series[i] * (bottom - top) / max);
+            }
+            g2d.setColor(COLORS[stat.ordinal()]);
+            g2d.drawPolyline(xs, ys, series.length);
+        }
+
+        int columnWidth = (getWidth() - 2 * PADDING) / LEGEND_COLUMNS;
+        for (Stat stat : stats) {
+            int x = PADDING + (stat.ordinal() % LEGEND_COLUMNS) * columnWidth;
+            int y = bottom + PADDING + (stat.ordinal() / LEGEND_COLUMNS) * fm.getHeight();
+            g2d.setColor(COLORS[stat.ordinal()]);
+            g2d.fillRect(x, y + (fm.getHeight() - 8) / 2, 8, 8);
+            g2d.setColor(Color.DARK_GRAY);
+            g2d.drawString(stat.getLabel(), x + 12, y + fm.getAscent());
+        }
+    }
+}